@@ -0,0 +1,204 @@
+package com.example.whiteelephant.benchmarks;
+
+import com.example.whiteelephant.dto.GameStateResponse;
+import com.example.whiteelephant.dto.PassTurnRequest;
+import com.example.whiteelephant.dto.StealRequest;
+import com.example.whiteelephant.dto.UnwrapRequest;
+import com.example.whiteelephant.model.GameState;
+import com.example.whiteelephant.model.Gift;
+import com.example.whiteelephant.model.Participant;
+import com.example.whiteelephant.service.GameEventBroadcaster;
+import com.example.whiteelephant.service.GameJournal;
+import com.example.whiteelephant.service.GameMetrics;
+import com.example.whiteelephant.service.GameRegistry;
+import com.example.whiteelephant.service.GameService;
+import com.example.whiteelephant.service.ImageCache;
+import com.example.whiteelephant.service.ImageOriginClient;
+import com.example.whiteelephant.service.ImageWarmer;
+import com.example.whiteelephant.service.RosterImporter;
+import com.example.whiteelephant.service.StateSerializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * One game behind a hand-wired {@link GameService}, with the journal and image warming off, plus helpers that find a
+ * legal next move. Countries are handed out in contiguous blocks, so the first country reaches its swap phase after
+ * {@code participants / countries} unwraps rather than after nearly the whole roster.
+ */
+final class BenchmarkGame implements AutoCloseable {
+    static final String GAME_ID = GameState.DEFAULT_GAME_ID;
+
+    final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    final StateSerializer stateSerializer = new StateSerializer(objectMapper);
+    final GameService gameService;
+    final String token;
+    final List<Participant> participants;
+    final List<Gift> gifts;
+
+    private final GameRegistry registry;
+    private final GameEventBroadcaster broadcaster;
+    private final ImageWarmer imageWarmer;
+    private final Path imageDirectory;
+    private final Map<String, Integer> countryByParticipant = new HashMap<>();
+    private final List<List<Integer>> giftsByCountry = new ArrayList<>();
+    private final int[] unwrapCursor;
+
+    BenchmarkGame(int participantCount, int countryCount) throws IOException {
+        int countries = Math.max(1, Math.min(countryCount, participantCount / 2));
+        participants = participants(participantCount, countries);
+        gifts = gifts(participants);
+        for (int country = 0; country < countries; country++) {
+            giftsByCountry.add(new ArrayList<>());
+        }
+        for (int index = 0; index < participants.size(); index++) {
+            int country = countryOf(index, participantCount, countries);
+            countryByParticipant.put(participants.get(index).getId(), country);
+            giftsByCountry.get(country).add(index);
+        }
+        unwrapCursor = new int[countries];
+
+        imageDirectory = Files.createTempDirectory("white-elephant-bench");
+        ImageCache imageCache = new ImageCache(imageDirectory, 1 << 20, Duration.ofMinutes(10), Duration.ZERO);
+        imageWarmer = new ImageWarmer(imageCache, new ImageOriginClient(imageCache, 5, Duration.ofSeconds(30)),
+                false, 1, false);
+        broadcaster = new GameEventBroadcaster(stateSerializer, Duration.ofSeconds(10));
+        GameMetrics metrics = GameMetrics.disabled();
+        registry = new GameRegistry(List.of(broadcaster), GameJournal.disabled(), metrics);
+        gameService = new GameService(registry, stateSerializer, broadcaster, imageWarmer, metrics,
+                new RosterImporter(objectMapper, Integer.MAX_VALUE));
+        token = gameService.login(GAME_ID, "host", "holidaypass").getToken();
+        reset();
+    }
+
+    /** A fresh game on the same roster: nothing revealed, seeding order as play order. */
+    void reset() {
+        registry.require(GAME_ID).replaceRoster(participants, gifts);
+        Arrays.fill(unwrapCursor, 0);
+    }
+
+    GameStateResponse state() {
+        return gameService.getState(GAME_ID);
+    }
+
+    /** The first unrevealed gift in the current participant's country, or null outside the opening phase. */
+    UnwrapRequest nextUnwrap() {
+        GameStateResponse state = state();
+        if (state.isGameCompleted() || state.isSwapModeActive() || state.getCurrentParticipantId() == null) {
+            return null;
+        }
+        int country = countryByParticipant.get(state.getCurrentParticipantId());
+        List<Integer> candidates = giftsByCountry.get(country);
+        while (unwrapCursor[country] < candidates.size()
+                && state.getGifts().get(candidates.get(unwrapCursor[country])).isRevealed()) {
+            unwrapCursor[country]++;
+        }
+        if (unwrapCursor[country] == candidates.size()) {
+            return null;
+        }
+        UnwrapRequest request = new UnwrapRequest();
+        request.setParticipantId(state.getCurrentParticipantId());
+        request.setGiftId(gifts.get(candidates.get(unwrapCursor[country])).getId());
+        return request;
+    }
+
+    /** A revealed gift the current participant may take from someone else, or null if there is none. */
+    StealRequest nextSteal() {
+        GameStateResponse state = state();
+        String current = state.getCurrentParticipantId();
+        if (state.isGameCompleted() || state.isSwapModeActive() || current == null) {
+            return null;
+        }
+        int country = countryByParticipant.get(current);
+        String blocked = state.getImmediateStealBlocks().get(current);
+        for (int gift : giftsByCountry.get(country)) {
+            GameStateResponse.GiftView view = state.getGifts().get(gift);
+            if (view.isRevealed() && !view.isLocked()
+                    && view.getWinnerParticipantId() != null
+                    && !view.getWinnerParticipantId().equals(current)
+                    && !view.getId().equals(blocked)) {
+                StealRequest request = new StealRequest();
+                request.setParticipantId(current);
+                request.setGiftId(view.getId());
+                return request;
+            }
+        }
+        return null;
+    }
+
+    /** A pass for whoever leads the swap queue, or null when no swap phase is running. */
+    PassTurnRequest nextPass() {
+        GameStateResponse state = state();
+        if (!state.isSwapModeActive() || state.getCurrentParticipantId() == null) {
+            return null;
+        }
+        PassTurnRequest request = new PassTurnRequest();
+        request.setParticipantId(state.getCurrentParticipantId());
+        return request;
+    }
+
+    void unwrap(UnwrapRequest request) {
+        gameService.unwrapGift(GAME_ID, token, request);
+    }
+
+    @Override
+    public void close() throws IOException {
+        broadcaster.destroy();
+        imageWarmer.destroy();
+        try (var files = Files.list(imageDirectory)) {
+            for (Path file : files.toList()) {
+                Files.deleteIfExists(file);
+            }
+        }
+        Files.deleteIfExists(imageDirectory);
+    }
+
+    static List<Participant> participants(int count, int countries) {
+        List<Participant> participants = new ArrayList<>(count);
+        for (int index = 0; index < count; index++) {
+            participants.add(new Participant(
+                    stableId("participant", index),
+                    "Participant " + index,
+                    "https://i.pravatar.cc/150?img=" + (index % 70),
+                    "Country " + countryOf(index, count, countries)));
+        }
+        return participants;
+    }
+
+    static List<Gift> gifts(List<Participant> participants) {
+        List<Gift> gifts = new ArrayList<>(participants.size());
+        for (int index = 0; index < participants.size(); index++) {
+            Participant owner = participants.get(index);
+            String imageUrl = "https://images.example/gift-" + index + ".jpg";
+            gifts.add(new Gift(
+                    stableId("gift", index),
+                    "Gift " + index,
+                    "Benchmark gift " + index,
+                    "https://gift-guide.example/gift-" + index,
+                    List.of(imageUrl, imageUrl + "?variant=1", imageUrl + "?variant=2"),
+                    owner.getId(),
+                    owner.getCountry()));
+        }
+        return gifts;
+    }
+
+    private static int countryOf(int index, int count, int countries) {
+        int perCountry = (count + countries - 1) / countries;
+        return index / perCountry;
+    }
+
+    static String stableId(String namespace, int index) {
+        return UUID.nameUUIDFromBytes((namespace + ":" + index).getBytes(StandardCharsets.UTF_8)).toString();
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.whiteelephant.benchmarks;
+
+import com.example.whiteelephant.dto.GameStateResponse;
+import com.example.whiteelephant.dto.PassTurnRequest;
+import com.example.whiteelephant.dto.StealRequest;
+import com.example.whiteelephant.dto.UnwrapRequest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single-threaded cost of each host action through {@code GameService}, including the snapshot every action publishes.
+ * Actions need a legal move, so each one is found in an invocation-level setup, outside the measured time. When the
+ * game runs out of such moves it is reset there too.
+ *
+ * <p>Run with {@code -prof gc} for the allocation profile: {@code gc.alloc.rate.norm} is bytes allocated per action,
+ * most of it the published snapshot. {@code RulePathBenchmark} measures the rules without it.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GameEngineBenchmark {
+
+    @State(Scope.Thread)
+    public static class Game {
+        @Param({"20", "1000", "100000"})
+        int participants;
+
+        @Param({"2", "50"})
+        int countries;
+
+        BenchmarkGame game;
+
+        @Setup(Level.Trial)
+        public void start() throws IOException {
+            game = new BenchmarkGame(participants, countries);
+        }
+
+        @TearDown(Level.Trial)
+        public void stop() throws IOException {
+            game.close();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Unwraps extends Game {
+        UnwrapRequest next;
+
+        @Setup(Level.Invocation)
+        public void prepare() {
+            next = game.nextUnwrap();
+            if (next == null) {
+                game.reset();
+                next = game.nextUnwrap();
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Steals extends Game {
+        StealRequest next;
+
+        /** Unwraps, untimed, until someone has a gift worth taking; starts over once the swap phase arrives. */
+        @Setup(Level.Invocation)
+        public void prepare() {
+            for (next = game.nextSteal(); next == null; next = game.nextSteal()) {
+                UnwrapRequest unwrap = game.nextUnwrap();
+                if (unwrap == null) {
+                    game.reset();
+                } else {
+                    game.unwrap(unwrap);
+                }
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Passes extends Game {
+        PassTurnRequest next;
+
+        /** Passing leaves the swap phase running, so one walk to it usually lasts the whole trial. */
+        @Setup(Level.Invocation)
+        public void prepare() {
+            for (next = game.nextPass(); next == null; next = game.nextPass()) {
+                UnwrapRequest unwrap = game.nextUnwrap();
+                if (unwrap == null) {
+                    game.reset();
+                } else {
+                    game.unwrap(unwrap);
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public GameStateResponse unwrapGift(Unwraps state) {
+        return state.game.gameService.unwrapGift(BenchmarkGame.GAME_ID, state.game.token, state.next);
+    }
+
+    @Benchmark
+    public GameStateResponse stealGift(Steals state) {
+        return state.game.gameService.stealGift(BenchmarkGame.GAME_ID, state.game.token, state.next);
+    }
+
+    @Benchmark
+    public GameStateResponse passTurn(Passes state) {
+        return state.game.gameService.passTurn(BenchmarkGame.GAME_ID, state.game.token, state.next);
+    }
+
+    /** Shuffling is allowed until the first turn, so a fresh game can be shuffled indefinitely. */
+    @Benchmark
+    public GameStateResponse shuffleParticipants(Game state) {
+        return state.game.gameService.shuffleParticipants(BenchmarkGame.GAME_ID, state.game.token);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public GameStateResponse getState(Game state) {
+        return state.game.gameService.getState(BenchmarkGame.GAME_ID);
+    }
+}
@@ -0,0 +1,412 @@
+package com.example.whiteelephant.benchmarks;
+
+import com.example.whiteelephant.dto.GameStateResponse;
+import com.example.whiteelephant.dto.PassTurnRequest;
+import com.example.whiteelephant.dto.StealRequest;
+import com.example.whiteelephant.dto.UnwrapRequest;
+import com.example.whiteelephant.model.GameState;
+import com.example.whiteelephant.model.Participant;
+import com.example.whiteelephant.service.GameEventBroadcaster;
+import com.example.whiteelephant.service.GameJournal;
+import com.example.whiteelephant.service.GameMetrics;
+import com.example.whiteelephant.service.GameRegistry;
+import com.example.whiteelephant.service.GameService;
+import com.example.whiteelephant.service.ImageCache;
+import com.example.whiteelephant.service.ImageOriginClient;
+import com.example.whiteelephant.service.ImageWarmer;
+import com.example.whiteelephant.service.RosterImporter;
+import com.example.whiteelephant.service.StateSerializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Plays whole games through {@link GameService} with random legal moves, on a fork-join pool, and checks the engine's
+ * invariants after every accepted action. Game {@code n} depends only on the seed and {@code n}, so a failure it reports
+ * can be replayed alone with {@code --first n --games 1}.
+ *
+ * <p>A game that is neither complete nor offering a legal move counts as stuck, and so does one still going after
+ * {@code --max-steps}. Each worker thread plays its games on its own session, so the pool runs that many games at once.
+ *
+ * <pre>
+ * java -cp benchmarks/target/benchmarks.jar com.example.whiteelephant.benchmarks.GameSimulator --games 1000000
+ * </pre>
+ */
+public final class GameSimulator {
+    private static final int GAMES_PER_TASK = 64;
+    private static final int MAX_REPORTED_FAILURES = 20;
+
+    private final GameService gameService;
+    private final GameRegistry registry;
+    private final ConcurrentMap<String, String> tokens = new ConcurrentHashMap<>();
+    private final long seed;
+    private final int participants;
+    private final int countries;
+    private final int maxSteps;
+
+    private GameSimulator(GameService gameService, GameRegistry registry, long seed, int participants, int countries,
+                          int maxSteps) {
+        this.gameService = gameService;
+        this.registry = registry;
+        this.seed = seed;
+        this.participants = participants;
+        this.countries = countries;
+        this.maxSteps = maxSteps;
+    }
+
+    public static void main(String[] args) throws IOException {
+        Map<String, String> options = parseOptions(args);
+        long games = Long.parseLong(options.getOrDefault("games", "100000"));
+        long first = Long.parseLong(options.getOrDefault("first", "0"));
+        long seed = Long.parseLong(options.getOrDefault("seed", "1"));
+        int participants = Integer.parseInt(options.getOrDefault("participants", "20"));
+        int countries = Integer.parseInt(options.getOrDefault("countries", "2"));
+        int maxSteps = Integer.parseInt(options.getOrDefault("max-steps", String.valueOf(participants * 50)));
+        int parallelism = Integer.parseInt(options.getOrDefault("parallelism",
+                String.valueOf(Runtime.getRuntime().availableProcessors())));
+        if (participants < 1 || countries < 1 || parallelism < 1 || parallelism > 500) {
+            throw new IllegalArgumentException("Need participants >= 1, countries >= 1 and parallelism in 1..500");
+        }
+
+        Path imageDirectory = Files.createTempDirectory("white-elephant-sim");
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        StateSerializer stateSerializer = new StateSerializer(objectMapper);
+        ImageCache imageCache = new ImageCache(imageDirectory, 1 << 20, Duration.ofMinutes(10), Duration.ZERO);
+        ImageWarmer imageWarmer = new ImageWarmer(imageCache,
+                new ImageOriginClient(imageCache, 5, Duration.ofSeconds(30)), false, 1, false);
+        GameEventBroadcaster broadcaster = new GameEventBroadcaster(stateSerializer, Duration.ofSeconds(10));
+        GameMetrics metrics = GameMetrics.disabled();
+        GameRegistry registry = new GameRegistry(List.of(broadcaster), GameJournal.disabled(), metrics);
+        GameService gameService = new GameService(registry, stateSerializer, broadcaster, imageWarmer, metrics,
+                new RosterImporter(objectMapper, Integer.MAX_VALUE));
+        GameSimulator simulator = new GameSimulator(gameService, registry, seed, participants, countries, maxSteps);
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        long started = System.nanoTime();
+        Tally tally;
+        try {
+            tally = pool.invoke(simulator.new Games(first, first + games));
+        } finally {
+            pool.shutdownNow();
+            broadcaster.destroy();
+            imageWarmer.destroy();
+            Files.deleteIfExists(imageDirectory);
+        }
+        double seconds = (System.nanoTime() - started) / 1e9;
+
+        System.out.printf("seed %d, games %d..%d, %d participants in %d countries, %d threads%n",
+                seed, first, first + games - 1, participants, countries, parallelism);
+        System.out.printf("%d completed, %d stuck, %d with violations in %.1f s%n",
+                tally.completed, tally.stuck, tally.violations, seconds);
+        System.out.printf("%.0f games/s, %.0f actions/s (%d actions)%n",
+                tally.games / seconds, tally.actions / seconds, tally.actions);
+        tally.failures.forEach(failure -> System.out.println("  " + failure));
+        if (tally.stuck + tally.violations > 0) {
+            System.exit(1);
+        }
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int index = 0; index < args.length; index += 2) {
+            if (!args[index].startsWith("--") || index + 1 == args.length) {
+                throw new IllegalArgumentException("Expected --name value pairs, got " + args[index]);
+            }
+            options.put(args[index].substring(2), args[index + 1]);
+        }
+        return options;
+    }
+
+    /** Splits a range of game numbers until it is small enough to play in one go. */
+    private final class Games extends RecursiveTask<Tally> {
+        private final long from;
+        private final long to;
+
+        Games(long from, long to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Tally compute() {
+            if (to - from <= GAMES_PER_TASK) {
+                String gameId = "sim-" + ((ForkJoinWorkerThread) Thread.currentThread()).getPoolIndex();
+                Tally tally = new Tally();
+                for (long game = from; game < to; game++) {
+                    play(gameId, game, tally);
+                }
+                return tally;
+            }
+            long middle = from + (to - from) / 2;
+            Games left = new Games(from, middle);
+            left.fork();
+            Tally right = new Games(middle, to).compute();
+            return left.join().merge(right);
+        }
+    }
+
+    private enum Kind { UNWRAP, STEAL, PASS, FINISH_SWAP }
+
+    private record Move(Kind kind, String participantId, String giftId) {
+    }
+
+    private void play(String gameId, long game, Tally tally) {
+        SplittableRandom random = new SplittableRandom(seed ^ (game * 0x9E3779B97F4A7C15L));
+        List<Participant> roster = rosterFor(random);
+        // Host tokens are per game, so each worker's game signs its host in once.
+        String token = tokens.computeIfAbsent(gameId, id -> gameService.login(id, "host", "holidaypass").getToken());
+        GameStateResponse state = registry.getOrCreate(gameId).replaceRoster(roster, BenchmarkGame.gifts(roster));
+        tally.games++;
+        for (int step = 0; step < maxSteps; step++) {
+            if (state.isGameCompleted()) {
+                tally.completed++;
+                return;
+            }
+            Move move = nextMove(state, random);
+            if (move == null) {
+                tally.stuck(game, "no legal move: " + describe(state));
+                gameService.endGame(gameId, token);
+                return;
+            }
+            GameStateResponse next;
+            try {
+                next = apply(gameId, token, move);
+            } catch (ResponseStatusException ex) {
+                tally.violation(game, "rejected " + move + " (" + ex.getReason() + "): " + describe(state));
+                return;
+            }
+            tally.actions++;
+            String violation = check(state, next);
+            if (violation != null) {
+                tally.violation(game, violation + " after " + move);
+                return;
+            }
+            state = next;
+        }
+        tally.stuck(game, "still running after " + maxSteps + " actions: " + describe(state));
+        gameService.endGame(gameId, token);
+    }
+
+    /** Countries drawn at random and the roster shuffled, so their turns interleave differently in every game. */
+    private List<Participant> rosterFor(SplittableRandom random) {
+        List<Participant> roster = new ArrayList<>(participants);
+        for (int index = 0; index < participants; index++) {
+            roster.add(new Participant(
+                    BenchmarkGame.stableId("participant", index),
+                    "Participant " + index,
+                    null,
+                    "Country " + random.nextInt(countries)));
+        }
+        Collections.shuffle(roster, new Random(random.nextLong()));
+        return roster;
+    }
+
+    /**
+     * A random move the published state says is legal, or null if it offers none. Opening turns unwrap or steal within
+     * the participant's country; swap turns steal or pass, and now and then the host ends the phase early.
+     */
+    private static Move nextMove(GameStateResponse state, SplittableRandom random) {
+        String current = state.getCurrentParticipantId();
+        if (current == null) {
+            return null;
+        }
+        GameStateResponse.ParticipantView participant = participant(state, current);
+        String blocked = state.getImmediateStealBlocks().get(current);
+        List<String> unwraps = new ArrayList<>();
+        List<String> steals = new ArrayList<>();
+        boolean ownGiftLocked = false;
+        for (GameStateResponse.GiftView gift : state.getGifts()) {
+            if (gift.getId().equals(participant.getCurrentGiftId())) {
+                ownGiftLocked = gift.isLocked();
+            }
+            if (!gift.getCountry().equals(participant.getCountry())) {
+                continue;
+            }
+            if (!gift.isRevealed()) {
+                unwraps.add(gift.getId());
+            } else if (!gift.isLocked() && gift.getWinnerParticipantId() != null
+                    && !gift.getWinnerParticipantId().equals(current) && !gift.getId().equals(blocked)) {
+                steals.add(gift.getId());
+            }
+        }
+
+        if (!state.isSwapModeActive()) {
+            if (!steals.isEmpty() && (unwraps.isEmpty() || random.nextInt(10) < 3)) {
+                return new Move(Kind.STEAL, current, steals.get(random.nextInt(steals.size())));
+            }
+            return unwraps.isEmpty() ? null : new Move(Kind.UNWRAP, current, unwraps.get(random.nextInt(unwraps.size())));
+        }
+        if (!anyoneCanSwap(state, participant.getCountry())) {
+            return null;
+        }
+        int roll = random.nextInt(100);
+        if (roll < 2) {
+            return new Move(Kind.FINISH_SWAP, null, null);
+        }
+        if (roll < 30 || ownGiftLocked || steals.isEmpty()) {
+            return new Move(Kind.PASS, current, null);
+        }
+        return new Move(Kind.STEAL, current, steals.get(random.nextInt(steals.size())));
+    }
+
+    /**
+     * Whether anyone in the swapping country has a swap left. If not, only passes remain and nothing but the host can
+     * end the phase, which counts as stuck even though the published state still offers moves.
+     */
+    private static boolean anyoneCanSwap(GameStateResponse state, String country) {
+        Map<String, GameStateResponse.GiftView> gifts = new HashMap<>();
+        for (GameStateResponse.GiftView gift : state.getGifts()) {
+            gifts.put(gift.getId(), gift);
+        }
+        for (GameStateResponse.ParticipantView participant : state.getParticipants()) {
+            GameStateResponse.GiftView own = gifts.get(participant.getCurrentGiftId());
+            if (!participant.getCountry().equals(country) || (own != null && own.isLocked())) {
+                continue;
+            }
+            for (GameStateResponse.GiftView gift : state.getGifts()) {
+                if (gift.getCountry().equals(country) && gift.isRevealed() && !gift.isLocked()
+                        && gift.getWinnerParticipantId() != null
+                        && !gift.getWinnerParticipantId().equals(participant.getId())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private GameStateResponse apply(String gameId, String token, Move move) {
+        return switch (move.kind()) {
+            case UNWRAP -> {
+                UnwrapRequest request = new UnwrapRequest();
+                request.setParticipantId(move.participantId());
+                request.setGiftId(move.giftId());
+                yield gameService.unwrapGift(gameId, token, request);
+            }
+            case STEAL -> {
+                StealRequest request = new StealRequest();
+                request.setParticipantId(move.participantId());
+                request.setGiftId(move.giftId());
+                yield gameService.stealGift(gameId, token, request);
+            }
+            case PASS -> {
+                PassTurnRequest request = new PassTurnRequest();
+                request.setParticipantId(move.participantId());
+                yield gameService.passTurn(gameId, token, request);
+            }
+            case FINISH_SWAP -> gameService.finishCurrentCountrySwap(gameId, token);
+        };
+    }
+
+    /** The first invariant {@code next} breaks, or null. */
+    private static String check(GameStateResponse previous, GameStateResponse next) {
+        // More than one when the action left a swap phase nobody can act in, which then ends on its own.
+        if (next.getVersion() <= previous.getVersion()) {
+            return "version went from " + previous.getVersion() + " to " + next.getVersion();
+        }
+        Map<String, GameStateResponse.ParticipantView> participants = new HashMap<>();
+        Map<String, String> holders = new HashMap<>();
+        for (GameStateResponse.ParticipantView participant : next.getParticipants()) {
+            participants.put(participant.getId(), participant);
+            String gift = participant.getCurrentGiftId();
+            if (gift != null && holders.putIfAbsent(gift, participant.getId()) != null) {
+                return "gift " + gift + " held by both " + holders.get(gift) + " and " + participant.getId();
+            }
+            if (gift == null && next.isGameCompleted()) {
+                return "game completed with " + participant.getId() + " empty-handed";
+            }
+        }
+        for (GameStateResponse.GiftView gift : next.getGifts()) {
+            String winner = gift.getWinnerParticipantId();
+            if (!Objects.equals(winner, holders.get(gift.getId()))) {
+                return "gift " + gift.getId() + " says it is won by " + winner
+                        + " but is held by " + holders.get(gift.getId());
+            }
+            if (winner != null && !gift.isRevealed()) {
+                return "gift " + gift.getId() + " is won by " + winner + " but still wrapped";
+            }
+            if (winner != null && !participants.get(winner).getCountry().equals(gift.getCountry())) {
+                return "gift " + gift.getId() + " left its country for " + winner;
+            }
+            if (gift.getTimesStolen() > GameState.MAX_STEALS_PER_GIFT
+                    || gift.isLocked() != (gift.getTimesStolen() >= GameState.MAX_STEALS_PER_GIFT)) {
+                return "gift " + gift.getId() + " stolen " + gift.getTimesStolen() + " times, locked " + gift.isLocked();
+            }
+        }
+        return null;
+    }
+
+    private static GameStateResponse.ParticipantView participant(GameStateResponse state, String participantId) {
+        for (GameStateResponse.ParticipantView participant : state.getParticipants()) {
+            if (participant.getId().equals(participantId)) {
+                return participant;
+            }
+        }
+        throw new IllegalStateException("Unknown participant " + participantId);
+    }
+
+    private static String describe(GameStateResponse state) {
+        return "version " + state.getVersion()
+                + ", current " + state.getCurrentParticipantId()
+                + ", swap " + (state.isSwapModeActive() ? state.getCurrentCountry() : "off")
+                + ", completed countries " + state.getCompletedCountries()
+                + ", upcoming " + state.getUpcomingTurnOrder().size();
+    }
+
+    /** Counts for one range of games; ranges merge as the fork-join tasks complete. */
+    private static final class Tally {
+        long games;
+        long completed;
+        long stuck;
+        long violations;
+        long actions;
+        final List<String> failures = new ArrayList<>();
+
+        void stuck(long game, String detail) {
+            stuck++;
+            fail(game, "stuck: " + detail);
+        }
+
+        void violation(long game, String detail) {
+            violations++;
+            fail(game, detail);
+        }
+
+        private void fail(long game, String detail) {
+            if (failures.size() < MAX_REPORTED_FAILURES) {
+                failures.add("game " + game + ": " + detail);
+            }
+        }
+
+        Tally merge(Tally other) {
+            games += other.games;
+            completed += other.completed;
+            stuck += other.stuck;
+            violations += other.violations;
+            actions += other.actions;
+            for (String failure : other.failures) {
+                if (failures.size() < MAX_REPORTED_FAILURES) {
+                    failures.add(failure);
+                }
+            }
+            return this;
+        }
+    }
+}
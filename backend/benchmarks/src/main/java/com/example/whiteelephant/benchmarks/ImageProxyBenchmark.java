@@ -0,0 +1,124 @@
+package com.example.whiteelephant.benchmarks;
+
+import com.example.whiteelephant.service.ImageCache;
+import com.example.whiteelephant.service.ImageOriginClient;
+import com.sun.net.httpserver.HttpServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The image proxy's origin path against a local stub origin with injected latency. A cold fetch is one full download
+ * into the cache, so at {@code originLatencyMillis=50} it should cost about 50 ms whatever the thread count: requests
+ * wait on the shared client without holding a thread each. A hit should cost microseconds.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+public class ImageProxyBenchmark {
+    @Param({"0", "50"})
+    int originLatencyMillis;
+
+    @Param({"100000"})
+    int imageBytes;
+
+    private HttpServer origin;
+    private ExecutorService originThreads;
+    private Path cacheDirectory;
+    private ImageCache imageCache;
+    private ImageOriginClient originClient;
+    private String imageUrl;
+    private final AtomicLong keys = new AtomicLong();
+    private final ImageCache.ImageKey hotKey = new ImageCache.ImageKey("hot", 0);
+
+    @Setup
+    public void setUp() throws Exception {
+        byte[] image = new byte[imageBytes];
+        new Random(42).nextBytes(image);
+        origin = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 256);
+        origin.createContext("/", exchange -> {
+            try (exchange) {
+                Thread.sleep(originLatencyMillis);
+                exchange.getResponseHeaders().set("Content-Type", "image/jpeg");
+                exchange.getResponseHeaders().set("Cache-Control", "max-age=600");
+                exchange.sendResponseHeaders(200, image.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(image);
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        originThreads = Executors.newCachedThreadPool();
+        origin.setExecutor(originThreads);
+        origin.start();
+        imageUrl = "http://127.0.0.1:" + origin.getAddress().getPort() + "/image.jpg";
+
+        cacheDirectory = Files.createTempDirectory("white-elephant-bench-images");
+        // Small enough that cold fetches keep evicting, so the disk use stays flat however long the run.
+        imageCache = new ImageCache(cacheDirectory, 64L << 20, Duration.ofMinutes(10), Duration.ZERO);
+        // A threshold no run will reach, so the breaker never turns a slow origin into fast failures.
+        originClient = new ImageOriginClient(imageCache, Integer.MAX_VALUE, Duration.ofSeconds(1));
+        imageCache.open(hotKey, originClient.loaderFor(imageUrl)).whenCached().join();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        origin.stop(0);
+        originThreads.shutdownNow();
+        try (var files = Files.list(cacheDirectory)) {
+            for (Path file : files.toList()) {
+                Files.deleteIfExists(file);
+            }
+        }
+        Files.deleteIfExists(cacheDirectory);
+    }
+
+    @Benchmark
+    public ImageCache.CachedImage coldFetch() {
+        return fetchNewKey();
+    }
+
+    @Benchmark
+    @Threads(16)
+    public ImageCache.CachedImage coldFetchConcurrent() {
+        return fetchNewKey();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public ImageCache.Lookup cachedHit() {
+        return imageCache.open(hotKey, originClient.loaderFor(imageUrl));
+    }
+
+    private ImageCache.CachedImage fetchNewKey() {
+        ImageCache.ImageKey key = new ImageCache.ImageKey("cold-" + keys.incrementAndGet(), 0);
+        return imageCache.open(key, originClient.loaderFor(imageUrl)).whenCached().join();
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.whiteelephant.benchmarks;
+
+import com.example.whiteelephant.dto.GameStateResponse;
+import com.example.whiteelephant.model.GameState;
+import com.example.whiteelephant.service.StateProjection;
+import com.example.whiteelephant.service.StateSerializer;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building the published {@link GameStateResponse} from a mid-game {@link GameState}, and turning it into JSON: once with
+ * Jackson directly, and once through {@link StateSerializer}, which should be a cache hit after the first call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SnapshotBenchmark {
+    @Param({"20", "1000", "100000"})
+    int participants;
+
+    @Param({"2", "50"})
+    int countries;
+
+    private static final StateProjection TURN_FIELDS =
+            StateProjection.parse("currentParticipantId,swapModeActive,currentCountry");
+
+    private GameState state;
+    private GameStateResponse snapshot;
+    private ObjectMapper objectMapper;
+    private StateSerializer stateSerializer;
+
+    @Setup
+    public void setUp() {
+        int effectiveCountries = Math.max(1, Math.min(countries, participants / 2));
+        state = new GameState("bench");
+        var roster = BenchmarkGame.participants(participants, effectiveCountries);
+        state.replaceRoster(roster, BenchmarkGame.gifts(roster));
+        // Half the gifts unwrapped by their own owners, so views carry both revealed and hidden gifts.
+        for (int gift = 0; gift < state.getGiftCount(); gift += 2) {
+            state.revealGift(gift);
+            state.assignGift(gift, gift);
+            state.setParticipantGift(gift, gift);
+        }
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        stateSerializer = new StateSerializer(objectMapper);
+        snapshot = GameStateResponse.from(state);
+    }
+
+    @Benchmark
+    public GameStateResponse buildSnapshot() {
+        return GameStateResponse.from(state);
+    }
+
+    @Benchmark
+    public byte[] serializeJson() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(snapshot);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public StateSerializer.SerializedState serializeCached() {
+        return stateSerializer.serialize(snapshot);
+    }
+
+    /** A turn-only poll: should cost the same whatever the roster size. */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public byte[] serializeTurnProjection() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(TURN_FIELDS.apply(snapshot));
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.whiteelephant.benchmarks;
+
+import com.example.whiteelephant.dto.GameStateResponse;
+import com.example.whiteelephant.service.StateSerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Many state readers against one writer on the same game. Compare each group's reader throughput with its
+ * {@code readOnly} counterpart: reads are served from the published snapshot, so they should barely notice the writer.
+ * The writer shuffles, which a fresh game allows indefinitely and which republishes the whole snapshot every time.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StateContentionBenchmark {
+    @Param({"20", "1000", "100000"})
+    int participants;
+
+    private BenchmarkGame game;
+
+    @Setup
+    public void setUp() throws IOException {
+        game = new BenchmarkGame(participants, 50);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        game.close();
+    }
+
+    @Benchmark
+    @Group("readOnly")
+    @GroupThreads(7)
+    public GameStateResponse readOnly() {
+        return game.gameService.getState(BenchmarkGame.GAME_ID);
+    }
+
+    @Benchmark
+    @Group("readWhileWriting")
+    @GroupThreads(7)
+    public GameStateResponse read() {
+        return game.gameService.getState(BenchmarkGame.GAME_ID);
+    }
+
+    @Benchmark
+    @Group("readWhileWriting")
+    @GroupThreads(1)
+    public GameStateResponse write() {
+        return game.gameService.shuffleParticipants(BenchmarkGame.GAME_ID, game.token);
+    }
+
+    /** What GET /api/game/state actually returns: the snapshot's JSON, encoded once per version. */
+    @Benchmark
+    @Group("serializedReadOnly")
+    @GroupThreads(7)
+    public StateSerializer.SerializedState serializedReadOnly() {
+        return game.gameService.getSerializedState(BenchmarkGame.GAME_ID);
+    }
+
+    @Benchmark
+    @Group("serializedReadWhileWriting")
+    @GroupThreads(7)
+    public StateSerializer.SerializedState serializedRead() {
+        return game.gameService.getSerializedState(BenchmarkGame.GAME_ID);
+    }
+
+    @Benchmark
+    @Group("serializedReadWhileWriting")
+    @GroupThreads(1)
+    public GameStateResponse serializedWrite() {
+        return game.gameService.shuffleParticipants(BenchmarkGame.GAME_ID, game.token);
+    }
+}
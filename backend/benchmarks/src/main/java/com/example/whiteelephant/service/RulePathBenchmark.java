@@ -0,0 +1,135 @@
+package com.example.whiteelephant.service;
+
+import com.example.whiteelephant.dto.GameStateResponse;
+import com.example.whiteelephant.dto.GameStateResponse.GiftView;
+import com.example.whiteelephant.dto.StealRequest;
+import com.example.whiteelephant.dto.UnwrapRequest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The game rules alone. Moves recorded from a played game are applied the way recovery replays them, so nothing is
+ * journalled and no snapshot is built or published. The game is reset after its last recorded move; {@code resetOnly}
+ * pays for that same reset without applying anything, so {@code applyMove} minus {@code resetOnly} in
+ * {@code gc.alloc.rate.norm} is what the rules allocate per move.
+ *
+ * <p>In the engine's package because the replay entry point is package-private. Run with {@code -prof gc}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class RulePathBenchmark {
+    private static final int COUNTRIES = 2;
+    private static final GameStateListener UNOBSERVED = new GameStateListener() { };
+
+    @Param({"1000", "10000"})
+    int participants;
+
+    /** {@code unwrap} records the opening round as unwraps only; {@code steal} steals whenever it can. */
+    @Param({"unwrap", "steal"})
+    String moves;
+
+    private GameSession session;
+    private GameEvent[] recorded;
+    private final GameEvent reset = GameEvent.of(GameEvent.Type.RESET);
+    private int next;
+
+    @Setup(Level.Trial)
+    public void start() {
+        List<Roster.Entry> entries = new ArrayList<>(participants);
+        for (int index = 0; index < participants; index++) {
+            // Countries alternate, so the opening round runs through nearly the whole roster before a swap phase.
+            entries.add(new Roster.Entry("Member " + index, "", "Country " + index % COUNTRIES,
+                    "Gift " + index, "", ""));
+        }
+        Roster roster = Roster.of(entries);
+        recorded = record(roster).toArray(GameEvent[]::new);
+        session = new GameSession("rule-path", UNOBSERVED, GameJournal.disabled(), GameMetrics.disabled());
+        session.replaceRoster(roster.participants(), roster.gifts());
+    }
+
+    @Benchmark
+    public int applyMove() {
+        session.applyRecorded(recorded[next]);
+        return advance();
+    }
+
+    @Benchmark
+    public int resetOnly() {
+        return advance();
+    }
+
+    private int advance() {
+        if (++next == recorded.length) {
+            session.applyRecorded(reset);
+            next = 0;
+        }
+        return next;
+    }
+
+    /** Plays the opening round through the public actions and keeps each accepted move, until a swap phase begins. */
+    private List<GameEvent> record(Roster roster) {
+        GameSession game = new GameSession("rule-path-moves", UNOBSERVED, GameJournal.disabled(),
+                GameMetrics.disabled());
+        game.replaceRoster(roster.participants(), roster.gifts());
+        List<GameEvent> events = new ArrayList<>();
+        while (true) {
+            GameStateResponse state = game.getState();
+            String current = state.getCurrentParticipantId();
+            if (state.isSwapModeActive() || state.isGameCompleted() || current == null) {
+                return events;
+            }
+            String country = game.getParticipantOrThrow(current).getCountry();
+            String blocked = state.getImmediateStealBlocks().get(current);
+            GiftView stealable = null;
+            GiftView wrapped = null;
+            for (GiftView gift : state.getGifts()) {
+                if (!gift.getCountry().equals(country)) {
+                    continue;
+                }
+                if (!gift.isRevealed()) {
+                    wrapped = wrapped == null ? gift : wrapped;
+                } else if (stealable == null && !gift.isLocked() && !current.equals(gift.getWinnerParticipantId())
+                        && !gift.getId().equals(blocked)) {
+                    stealable = gift;
+                }
+            }
+            if (moves.equals("steal") && stealable != null) {
+                StealRequest request = new StealRequest();
+                request.setParticipantId(current);
+                request.setGiftId(stealable.getId());
+                game.stealGift(request);
+                events.add(GameEvent.steal(current, stealable.getId()));
+            } else if (wrapped != null) {
+                UnwrapRequest request = new UnwrapRequest();
+                request.setParticipantId(current);
+                request.setGiftId(wrapped.getId());
+                game.unwrapGift(request);
+                events.add(GameEvent.unwrap(current, wrapped.getId()));
+            } else {
+                return events;
+            }
+            if (game.getState().getVersion() != state.getVersion() + 1) {
+                // A swap phase began and ended on its own; that finish is not among the recorded moves.
+                return events;
+            }
+        }
+    }
+}
@@ -4,13 +4,14 @@ import com.example.whiteelephant.dto.LoginRequest;
 import com.example.whiteelephant.dto.LoginResponse;
 import com.example.whiteelephant.service.GameService;
 import jakarta.validation.Valid;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
 @RestController
-@RequestMapping("/api/host")
+@RequestMapping("/api")
 public class AuthController {
     private final GameService gameService;
 
@@ -18,8 +19,9 @@ public class AuthController {
         this.gameService = gameService;
     }
 
-    @PostMapping("/login")
-    public LoginResponse login(@Valid @RequestBody LoginRequest request) {
-        return gameService.login(request.getUsername(), request.getPassword());
+    @PostMapping({"/host/login", "/games/{gameId}/host/login"})
+    public LoginResponse login(@PathVariable(required = false) String gameId,
+                               @Valid @RequestBody LoginRequest request) {
+        return gameService.login(gameId, request.getUsername(), request.getPassword());
     }
 }
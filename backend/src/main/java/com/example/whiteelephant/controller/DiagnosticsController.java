@@ -0,0 +1,49 @@
+package com.example.whiteelephant.controller;
+
+import com.example.whiteelephant.model.GameState;
+import com.example.whiteelephant.service.FlightRecording;
+import com.example.whiteelephant.service.GameService;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+@RestController
+@RequestMapping("/api/diagnostics")
+public class DiagnosticsController {
+    private final GameService gameService;
+    private final FlightRecording flightRecording;
+
+    public DiagnosticsController(GameService gameService, FlightRecording flightRecording) {
+        this.gameService = gameService;
+        this.flightRecording = flightRecording;
+    }
+
+    /**
+     * Dumps the running flight recording; the file also stays in the recordings directory. The recording covers every
+     * game on this node, so only the default game's host may take it.
+     */
+    @PostMapping("/recording")
+    public ResponseEntity<Resource> dumpRecording(@RequestHeader("X-Host-Token") String token) throws IOException {
+        if (!gameService.isAuthorized(GameState.DEFAULT_GAME_ID, token)) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Host token is missing or invalid");
+        }
+        Path file = flightRecording.dump();
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.attachment().filename(file.getFileName().toString()).build().toString())
+                .body(new FileSystemResource(file));
+    }
+}
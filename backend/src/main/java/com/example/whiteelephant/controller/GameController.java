@@ -1,67 +1,203 @@
 package com.example.whiteelephant.controller;
 
+import com.example.whiteelephant.dto.BatchRequest;
+import com.example.whiteelephant.dto.ParticipantStateResponse;
 import com.example.whiteelephant.dto.PassTurnRequest;
+import com.example.whiteelephant.dto.GameStateDelta;
 import com.example.whiteelephant.dto.GameStateResponse;
+import com.example.whiteelephant.dto.StatePage;
 import com.example.whiteelephant.dto.StealRequest;
 import com.example.whiteelephant.dto.UnwrapRequest;
+import com.example.whiteelephant.service.GameMetrics;
 import com.example.whiteelephant.service.GameService;
+import com.example.whiteelephant.service.StateProjection;
+import com.example.whiteelephant.service.StateSerializer.SerializedState;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+
 @RestController
-@RequestMapping("/api/game")
+@RequestMapping("/api")
 public class GameController {
     private final GameService gameService;
+    private final GameMetrics gameMetrics;
 
-    public GameController(GameService gameService) {
+    public GameController(GameService gameService, GameMetrics gameMetrics) {
         this.gameService = gameService;
+        this.gameMetrics = gameMetrics;
+    }
+
+    @GetMapping("/games")
+    public List<String> games() {
+        return gameService.listGames();
+    }
+
+    @DeleteMapping("/games/{gameId}")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void remove(@PathVariable String gameId,
+                       @RequestHeader("X-Host-Token") String token) {
+        gameService.removeGame(gameId, token);
     }
 
-    @GetMapping("/state")
-    public GameStateResponse state() {
-        return gameService.getState();
+    @GetMapping({"/game/state", "/games/{gameId}/state"})
+    public ResponseEntity<?> state(@PathVariable(required = false) String gameId,
+                                   @RequestParam(required = false) Long since,
+                                   @RequestParam(required = false) String fields,
+                                   @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+                                   @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        // A projection is always answered whole; a delta would carry fields the client did not ask for.
+        StateProjection projection = fields == null ? null : StateProjection.parse(fields);
+        if (since != null && projection == null) {
+            Optional<GameStateDelta> delta = gameService.getStateSince(gameId, since);
+            if (delta.isPresent()) {
+                gameMetrics.recordDeltaPoll();
+                return ResponseEntity.ok()
+                        .cacheControl(CacheControl.noStore())
+                        .body(delta.get());
+            }
+        }
+
+        SerializedState serialized = projection == null
+                ? gameService.getSerializedState(gameId)
+                : gameService.getSerializedState(gameId, projection);
+        boolean gzip = acceptEncoding != null && acceptEncoding.toLowerCase(Locale.ROOT).contains("gzip");
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .cacheControl(CacheControl.noCache())
+                .varyBy(HttpHeaders.ACCEPT_ENCODING);
+        String etag = gzip ? serialized.gzipEtag() : serialized.etag();
+        if (etag.equals(ifNoneMatch)) {
+            // Spring answers this with a 304 and no body.
+            gameMetrics.recordNotModifiedPoll();
+        } else {
+            gameMetrics.recordStatePoll(gzip, gzip ? serialized.gzip().length : serialized.json().length);
+        }
+        if (gzip) {
+            return response.eTag(serialized.gzipEtag())
+                    .header(HttpHeaders.CONTENT_ENCODING, "gzip")
+                    .body(serialized.gzip());
+        }
+        return response.eTag(serialized.etag()).body(serialized.json());
     }
 
-    @PostMapping("/shuffle")
-    public GameStateResponse shuffle(@RequestHeader("X-Host-Token") String token) {
-        return gameService.shuffleParticipants(token);
+    /** Participants in play order, optionally from one country. */
+    @GetMapping({"/game/participants", "/games/{gameId}/participants"})
+    public StatePage participants(@PathVariable(required = false) String gameId,
+                                  @RequestParam(required = false) String country,
+                                  @RequestParam(required = false) String cursor,
+                                  @RequestParam(defaultValue = "100") int limit,
+                                  @RequestParam(required = false) String fields) {
+        return gameService.getParticipantPage(gameId, country, cursor, limit, fields);
     }
 
-    @PostMapping("/turn/unwrap")
-    public GameStateResponse unwrap(@RequestHeader("X-Host-Token") String token,
+    /** Just what one participant's screen needs; far smaller than the state once the party is large. */
+    @GetMapping({"/game/participants/{participantId}/view", "/games/{gameId}/participants/{participantId}/view"})
+    public ParticipantStateResponse participantView(@PathVariable(required = false) String gameId,
+                                                    @PathVariable String participantId) {
+        return gameService.getParticipantView(gameId, participantId);
+    }
+
+    /** Gifts in roster order, optionally from one country and by whether they have been unwrapped. */
+    @GetMapping({"/game/gifts", "/games/{gameId}/gifts"})
+    public StatePage gifts(@PathVariable(required = false) String gameId,
+                           @RequestParam(required = false) String country,
+                           @RequestParam(required = false) Boolean revealed,
+                           @RequestParam(required = false) String cursor,
+                           @RequestParam(defaultValue = "100") int limit,
+                           @RequestParam(required = false) String fields) {
+        return gameService.getGiftPage(gameId, country, revealed, cursor, limit, fields);
+    }
+
+    @GetMapping(value = {"/game/events", "/games/{gameId}/events"}, produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public void events(@PathVariable(required = false) String gameId,
+                       @RequestParam(defaultValue = "false") boolean versions,
+                       HttpServletRequest request,
+                       HttpServletResponse response) throws IOException {
+        gameService.subscribe(gameId, versions, request, response);
+    }
+
+    @PostMapping({"/game/shuffle", "/games/{gameId}/shuffle"})
+    public GameStateResponse shuffle(@PathVariable(required = false) String gameId,
+                                     @RequestHeader("X-Host-Token") String token) {
+        return gameService.shuffleParticipants(gameId, token);
+    }
+
+    @PostMapping({"/game/turn/unwrap", "/games/{gameId}/turn/unwrap"})
+    public GameStateResponse unwrap(@PathVariable(required = false) String gameId,
+                                    @RequestHeader("X-Host-Token") String token,
                                     @Valid @RequestBody UnwrapRequest request) {
-        return gameService.unwrapGift(token, request);
+        return gameService.unwrapGift(gameId, token, request);
     }
 
-    @PostMapping("/turn/steal")
-    public GameStateResponse steal(@RequestHeader("X-Host-Token") String token,
+    @PostMapping({"/game/turn/steal", "/games/{gameId}/turn/steal"})
+    public GameStateResponse steal(@PathVariable(required = false) String gameId,
+                                   @RequestHeader("X-Host-Token") String token,
                                    @Valid @RequestBody StealRequest request) {
-        return gameService.stealGift(token, request);
+        return gameService.stealGift(gameId, token, request);
     }
 
-    @PostMapping("/turn/pass")
-    public GameStateResponse pass(@RequestHeader("X-Host-Token") String token,
+    @PostMapping({"/game/turn/pass", "/games/{gameId}/turn/pass"})
+    public GameStateResponse pass(@PathVariable(required = false) String gameId,
+                                  @RequestHeader("X-Host-Token") String token,
                                   @Valid @RequestBody PassTurnRequest request) {
-        return gameService.passTurn(token, request);
+        return gameService.passTurn(gameId, token, request);
+    }
+
+    /** Applies every action in order, or none of them; the response is the state after the last one. */
+    @PostMapping({"/game/turn/batch", "/games/{gameId}/turn/batch"})
+    public GameStateResponse batch(@PathVariable(required = false) String gameId,
+                                   @RequestHeader("X-Host-Token") String token,
+                                   @Valid @RequestBody BatchRequest request) {
+        return gameService.applyBatch(gameId, token, request);
+    }
+
+    @PostMapping({"/game/turn/end", "/games/{gameId}/turn/end"})
+    public GameStateResponse end(@PathVariable(required = false) String gameId,
+                                 @RequestHeader("X-Host-Token") String token) {
+        return gameService.endGame(gameId, token);
     }
 
-    @PostMapping("/turn/end")
-    public GameStateResponse end(@RequestHeader("X-Host-Token") String token) {
-        return gameService.endGame(token);
+    @PostMapping({"/game/swap/end", "/games/{gameId}/swap/end"})
+    public GameStateResponse finishSwap(@PathVariable(required = false) String gameId,
+                                        @RequestHeader("X-Host-Token") String token) {
+        return gameService.finishCurrentCountrySwap(gameId, token);
     }
 
-    @PostMapping("/swap/end")
-    public GameStateResponse finishSwap(@RequestHeader("X-Host-Token") String token) {
-        return gameService.finishCurrentCountrySwap(token);
+    @PostMapping({"/game/reset", "/games/{gameId}/reset"})
+    public GameStateResponse reset(@PathVariable(required = false) String gameId,
+                                   @RequestHeader("X-Host-Token") String token) {
+        return gameService.resetGame(gameId, token);
     }
 
-    @PostMapping("/reset")
-    public GameStateResponse reset(@RequestHeader("X-Host-Token") String token) {
-        return gameService.resetGame(token);
+    /** Replaces the roster with an uploaded CSV (with a header row) or NDJSON one and starts the game over. */
+    @PostMapping(value = {"/game/roster", "/games/{gameId}/roster"},
+            consumes = {"text/csv", MediaType.APPLICATION_NDJSON_VALUE})
+    public GameStateResponse importRoster(@PathVariable(required = false) String gameId,
+                                          @RequestHeader("X-Host-Token") String token,
+                                          @RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+                                          InputStream body) {
+        return gameService.importRoster(gameId, token, body, contentType);
     }
 }
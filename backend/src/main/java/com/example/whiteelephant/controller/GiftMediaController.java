@@ -1,91 +1,242 @@
 package com.example.whiteelephant.controller;
 
-import com.example.whiteelephant.model.Gift;
-import com.example.whiteelephant.service.GameService;
+import com.example.whiteelephant.dto.AvatarAtlasResponse;
+import com.example.whiteelephant.service.AvatarService;
+import com.example.whiteelephant.service.CircuitBreaker;
+import com.example.whiteelephant.service.GiftImageService;
+import com.example.whiteelephant.service.ImageCache;
+import com.example.whiteelephant.service.ImageStreamBulkhead;
+import com.example.whiteelephant.service.ImageWarmer;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRange;
 import org.springframework.http.HttpStatus;
-import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.http.client.ClientHttpResponse;
-import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.http.server.ServletServerHttpResponse;
 import org.springframework.util.StreamUtils;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncManager;
+import org.springframework.web.context.request.async.WebAsyncUtils;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
 import java.time.Duration;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @RestController
-@RequestMapping("/api/gifts")
+@RequestMapping("/api")
 public class GiftMediaController {
-    private final GameService gameService;
-    private final RestTemplate restTemplate;
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
 
-    public GiftMediaController(GameService gameService) {
-        this.gameService = gameService;
-        this.restTemplate = buildRestTemplate();
+    private static final CacheControl IMMUTABLE = CacheControl.maxAge(Duration.ofDays(365)).cachePublic().immutable();
+    private static final CacheControl REVALIDATE = CacheControl.maxAge(Duration.ofMinutes(2));
+    private static final String BULKHEAD_INTERCEPTOR_KEY = GiftMediaController.class.getName() + ".bulkhead";
+
+    private final GiftImageService giftImageService;
+    private final AvatarService avatarService;
+    private final ImageStreamBulkhead imageStreamBulkhead;
+    private final AsyncTaskExecutor streamExecutor;
+
+    public GiftMediaController(GiftImageService giftImageService,
+                               AvatarService avatarService,
+                               ImageStreamBulkhead imageStreamBulkhead) {
+        this.giftImageService = giftImageService;
+        this.avatarService = avatarService;
+        this.imageStreamBulkhead = imageStreamBulkhead;
+        this.streamExecutor = new TaskExecutorAdapter(imageStreamBulkhead.executor());
+    }
+
+    @GetMapping({"/gifts/{giftId}/images/{index}", "/games/{gameId}/gifts/{giftId}/images/{index}"})
+    public ResponseEntity<StreamingResponseBody> proxyGiftImage(@PathVariable(required = false) String gameId,
+                                                                @PathVariable String giftId,
+                                                                @PathVariable int index,
+                                                                @RequestParam(name = "w", required = false) Integer width,
+                                                                HttpServletRequest request,
+                                                                HttpServletResponse response) throws IOException {
+        // A gift's id is derived from its primary image, and only revealed gifts get this far, so the bytes behind
+        // this URL never change and browsers may keep them for good.
+        return serve(giftImageService.openGiftImage(gameId, giftId, index, width), IMMUTABLE, request, response);
+    }
+
+    @GetMapping({"/participants/{participantId}/avatar", "/games/{gameId}/participants/{participantId}/avatar"})
+    public ResponseEntity<StreamingResponseBody> proxyAvatar(@PathVariable(required = false) String gameId,
+                                                             @PathVariable String participantId,
+                                                             @RequestParam(name = "w", required = false) Integer width,
+                                                             HttpServletRequest request,
+                                                             HttpServletResponse response) throws IOException {
+        // Participant ids are derived from the photo URL, so the same URL always means the same photo.
+        return serve(avatarService.openAvatar(gameId, participantId, width), IMMUTABLE, request, response);
+    }
+
+    @GetMapping({"/avatars/atlas", "/games/{gameId}/avatars/atlas"})
+    public AvatarAtlasResponse avatarAtlas(@PathVariable(required = false) String gameId) {
+        return avatarService.getAtlas(gameId);
+    }
+
+    @GetMapping({"/avatars/atlas/{rosterKey}", "/games/{gameId}/avatars/atlas/{rosterKey}"})
+    public ResponseEntity<StreamingResponseBody> avatarAtlasImage(@PathVariable(required = false) String gameId,
+                                                                  @PathVariable String rosterKey,
+                                                                  HttpServletRequest request,
+                                                                  HttpServletResponse response) throws IOException {
+        // Not immutable: an atlas with blank tiles for failed photos is rebuilt once they load.
+        return serve(avatarService.openAtlasImage(gameId, rosterKey), REVALIDATE, request, response);
+    }
+
+    @GetMapping("/media/cache")
+    public ImageCache.Stats cacheStats() {
+        return giftImageService.getCacheStats();
+    }
+
+    @GetMapping("/media/prefetch")
+    public ImageWarmer.Stats prefetchStats() {
+        return giftImageService.getPrefetchStats();
+    }
+
+    @GetMapping("/media/origins")
+    public List<CircuitBreaker.Stats> originStats() {
+        return giftImageService.getOriginStats();
+    }
+
+    @GetMapping("/media/streams")
+    public ImageStreamBulkhead.Stats streamStats() {
+        return imageStreamBulkhead.stats();
     }
 
-    @GetMapping("/{giftId}/images/{index}")
-    public ResponseEntity<byte[]> proxyGiftImage(@PathVariable String giftId, @PathVariable int index) {
-        Gift gift = gameService.getGiftOrThrow(giftId);
-        if (!gift.isRevealed()) {
-            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Gift image not available until it is unwrapped");
+    private ResponseEntity<StreamingResponseBody> serve(ImageCache.Lookup lookup,
+                                                        CacheControl cacheControl,
+                                                        HttpServletRequest request,
+                                                        HttpServletResponse response) throws IOException {
+        if (lookup instanceof ImageCache.CachedImage image) {
+            return serveFile(image, cacheControl, request, response);
         }
 
-        List<String> imageUrls = gift.getImageUrls();
-        if (imageUrls == null || index < 0 || index >= imageUrls.size()) {
-            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Image not found");
+        // Misses answer with the whole body and ignore Range. Nothing here waits on the origin: the body runs on the
+        // bulkhead's threads once Tomcat has taken its request thread back, and sets the type when the origin answers.
+        // Only admitted misses get those threads; every other async handler keeps the application's executor.
+        if (!imageStreamBulkhead.tryEnter()) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many image streams in progress");
         }
+        AtomicBoolean released = new AtomicBoolean();
+        WebAsyncManager asyncManager = WebAsyncUtils.getAsyncManager(request);
+        asyncManager.setTaskExecutor(streamExecutor);
+        asyncManager.registerCallableInterceptor(BULKHEAD_INTERCEPTOR_KEY,
+                new CallableProcessingInterceptor() {
+                    @Override
+                    public <T> void afterCompletion(NativeWebRequest webRequest, Callable<T> task) {
+                        // Completion can be reported more than once for the same request.
+                        if (released.compareAndSet(false, true)) {
+                            imageStreamBulkhead.exit();
+                        }
+                    }
+                });
+        ImageCache.Download download = (ImageCache.Download) lookup;
+        StreamingResponseBody body = out -> {
+            ImageCache.Fetched fetched = download.awaitHeaders();
+            response.setContentType(fetched.contentType().toString());
+            if (fetched.contentLength() >= 0) {
+                response.setContentLengthLong(fetched.contentLength());
+            }
+            download.transferTo(out);
+        };
+        // No validator yet, since the hash is only known once the body is in, so the first copy is kept briefly.
+        HttpHeaders headers = new HttpHeaders();
+        headers.setCacheControl(REVALIDATE);
+        return new ResponseEntity<>(body, headers, HttpStatus.OK);
+    }
 
-        String sourceUrl = imageUrls.get(index);
+    private ResponseEntity<StreamingResponseBody> serveFile(ImageCache.CachedImage image,
+                                                            CacheControl cacheControl,
+                                                            HttpServletRequest request,
+                                                            HttpServletResponse response) throws IOException {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setCacheControl(cacheControl);
+        headers.setETag("\"" + image.contentHash() + "\"");
+        // Answered here, before any sendfile attributes are set, so a 304 can never carry the file.
+        if (matchesETag(request.getHeader(HttpHeaders.IF_NONE_MATCH), image.contentHash())) {
+            return new ResponseEntity<>(headers, HttpStatus.NOT_MODIFIED);
+        }
+        headers.setContentType(image.contentType());
+        headers.set(HttpHeaders.ACCEPT_RANGES, "bytes");
+        if (!HttpMethod.GET.matches(request.getMethod())) {
+            headers.setContentLength(image.length());
+            return new ResponseEntity<>(headers, HttpStatus.OK);
+        }
+        long start = 0;
+        long end = image.length();
+        HttpStatus status = HttpStatus.OK;
+        List<HttpRange> ranges;
         try {
-            ResponseEntity<byte[]> response = restTemplate.execute(
-                    sourceUrl,
-                    HttpMethod.GET,
-                    request -> request.getHeaders().set(HttpHeaders.USER_AGENT, "white-elephant-proxy"),
-                    this::readImageEntity
-            );
-
-            if (response == null || !response.getStatusCode().is2xxSuccessful()) {
-                throw new ResponseStatusException(HttpStatus.BAD_GATEWAY, "Image unavailable");
+            ranges = HttpRange.parseRanges(request.getHeader(HttpHeaders.RANGE));
+        } catch (IllegalArgumentException ex) {
+            ranges = List.of();
+        }
+        // Multi-range requests get the whole image, which the spec allows.
+        if (ranges.size() == 1) {
+            HttpRange range = ranges.get(0);
+            start = range.getRangeStart(image.length());
+            end = range.getRangeEnd(image.length()) + 1;
+            if (start >= end) {
+                headers.set(HttpHeaders.CONTENT_RANGE, "bytes */" + image.length());
+                return new ResponseEntity<>(headers, HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE);
             }
+            status = HttpStatus.PARTIAL_CONTENT;
+            headers.set(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + (end - 1) + "/" + image.length());
+        }
 
-            MediaType mediaType = response.getHeaders().getContentType();
-            byte[] body = response.getBody();
-            if (body == null || body.length == 0) {
-                throw new ResponseStatusException(HttpStatus.BAD_GATEWAY, "Image unavailable");
+        headers.setContentLength(end - start);
+        if (!Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            // Copied on the request thread rather than handed to an executor: a hit never waits on the origin, and
+            // only admitted misses may occupy the bulkhead's threads.
+            ServletServerHttpResponse out = new ServletServerHttpResponse(response);
+            out.setStatusCode(status);
+            out.getHeaders().putAll(headers);
+            try (InputStream in = Files.newInputStream(image.file())) {
+                StreamUtils.copyRange(in, out.getBody(), start, end - 1);
             }
-
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(mediaType != null ? mediaType : MediaType.IMAGE_JPEG);
-            headers.setCacheControl("max-age=120");
-
-            return new ResponseEntity<>(body, headers, HttpStatus.OK);
-        } catch (ResponseStatusException ex) {
-            throw ex;
-        } catch (Exception ex) {
-            throw new ResponseStatusException(HttpStatus.BAD_GATEWAY, "Unable to retrieve gift image", ex);
+            out.flush();
+            return null;
         }
-    }
 
-    private ResponseEntity<byte[]> readImageEntity(ClientHttpResponse response) throws IOException {
-        HttpHeaders headers = new HttpHeaders();
-        headers.putAll(response.getHeaders());
-        byte[] body = StreamUtils.copyToByteArray(response.getBody());
-        return new ResponseEntity<>(body, headers, response.getStatusCode());
+        // Tomcat writes the cached file straight from the page cache to the socket once this handler returns.
+        request.setAttribute(SENDFILE_FILENAME, image.file().toAbsolutePath().toString());
+        request.setAttribute(SENDFILE_START, start);
+        request.setAttribute(SENDFILE_END, end);
+        return new ResponseEntity<>(headers, status);
     }
 
-    private RestTemplate buildRestTemplate() {
-        SimpleClientHttpRequestFactory factory = new SimpleClientHttpRequestFactory();
-        factory.setConnectTimeout((int) Duration.ofSeconds(5).toMillis());
-        factory.setReadTimeout((int) Duration.ofSeconds(10).toMillis());
-        return new RestTemplate(factory);
+    /** If-None-Match uses weak comparison, so {@code W/"x"} matches {@code "x"}. */
+    private static boolean matchesETag(String ifNoneMatch, String contentHash) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals("\"" + contentHash + "\"")) {
+                return true;
+            }
+        }
+        return false;
     }
 }
@@ -0,0 +1,45 @@
+package com.example.whiteelephant.dto;
+
+import java.util.Map;
+
+/**
+ * Where each participant's avatar sits inside one packed image, so a roster renders from a single request.
+ */
+public class AvatarAtlasResponse {
+    private final String imageUrl;
+    private final int tileSize;
+    private final int width;
+    private final int height;
+    private final Map<String, Tile> tiles;
+
+    public AvatarAtlasResponse(String imageUrl, int tileSize, int width, int height, Map<String, Tile> tiles) {
+        this.imageUrl = imageUrl;
+        this.tileSize = tileSize;
+        this.width = width;
+        this.height = height;
+        this.tiles = tiles;
+    }
+
+    public String getImageUrl() {
+        return imageUrl;
+    }
+
+    public int getTileSize() {
+        return tileSize;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public Map<String, Tile> getTiles() {
+        return tiles;
+    }
+
+    public record Tile(int x, int y) {
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.whiteelephant.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import jakarta.validation.constraints.NotNull;
+
+/** One step of a batch; which ids it needs depends on its type, as with the single-action routes. */
+public class BatchActionRequest {
+    public enum Type {
+        @JsonProperty("unwrap") UNWRAP,
+        @JsonProperty("steal") STEAL,
+        @JsonProperty("pass") PASS,
+        @JsonProperty("swap-end") SWAP_END
+    }
+
+    @NotNull
+    private Type type;
+
+    private String participantId;
+
+    private String giftId;
+
+    public Type getType() {
+        return type;
+    }
+
+    public void setType(Type type) {
+        this.type = type;
+    }
+
+    public String getParticipantId() {
+        return participantId;
+    }
+
+    public void setParticipantId(String participantId) {
+        this.participantId = participantId;
+    }
+
+    public String getGiftId() {
+        return giftId;
+    }
+
+    public void setGiftId(String giftId) {
+        this.giftId = giftId;
+    }
+}
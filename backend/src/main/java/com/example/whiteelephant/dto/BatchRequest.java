@@ -0,0 +1,24 @@
+package com.example.whiteelephant.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+public class BatchRequest {
+    public static final int MAX_ACTIONS = 1000;
+
+    @NotEmpty
+    @Size(max = MAX_ACTIONS)
+    private List<@Valid @NotNull BatchActionRequest> actions;
+
+    public List<BatchActionRequest> getActions() {
+        return actions;
+    }
+
+    public void setActions(List<BatchActionRequest> actions) {
+        this.actions = actions;
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.whiteelephant.dto;
+
+import com.example.whiteelephant.dto.GameStateResponse.GiftView;
+import com.example.whiteelephant.dto.GameStateResponse.ParticipantView;
+
+import java.util.List;
+import java.util.Map;
+
+public class GameStateDelta {
+    private final String gameId;
+    private final long sinceVersion;
+    private final long version;
+    private final List<ParticipantView> participants;
+    private final List<GiftView> gifts;
+    private final List<String> upcomingTurnOrder;
+    private final List<String> completedTurnOrder;
+    private final Map<String, String> immediateStealBlocks;
+    private final List<String> completedCountries;
+    private final String currentParticipantId;
+    private final boolean gameStarted;
+    private final boolean gameCompleted;
+    private final boolean finalSwapAvailable;
+    private final boolean finalSwapUsed;
+    private final boolean swapModeActive;
+    private final String currentCountry;
+
+    public GameStateDelta(long sinceVersion,
+                          GameStateResponse current,
+                          List<ParticipantView> participants,
+                          List<GiftView> gifts,
+                          List<String> upcomingTurnOrder,
+                          List<String> completedTurnOrder,
+                          Map<String, String> immediateStealBlocks,
+                          List<String> completedCountries) {
+        this.gameId = current.getGameId();
+        this.sinceVersion = sinceVersion;
+        this.version = current.getVersion();
+        this.participants = participants;
+        this.gifts = gifts;
+        this.upcomingTurnOrder = upcomingTurnOrder;
+        this.completedTurnOrder = completedTurnOrder;
+        this.immediateStealBlocks = immediateStealBlocks;
+        this.completedCountries = completedCountries;
+        this.currentParticipantId = current.getCurrentParticipantId();
+        this.gameStarted = current.isGameStarted();
+        this.gameCompleted = current.isGameCompleted();
+        this.finalSwapAvailable = current.isFinalSwapAvailable();
+        this.finalSwapUsed = current.isFinalSwapUsed();
+        this.swapModeActive = current.isSwapModeActive();
+        this.currentCountry = current.getCurrentCountry();
+    }
+
+    public boolean isDelta() {
+        return true;
+    }
+
+    public String getGameId() {
+        return gameId;
+    }
+
+    public long getSinceVersion() {
+        return sinceVersion;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public List<ParticipantView> getParticipants() {
+        return participants;
+    }
+
+    public List<GiftView> getGifts() {
+        return gifts;
+    }
+
+    public List<String> getUpcomingTurnOrder() {
+        return upcomingTurnOrder;
+    }
+
+    public List<String> getCompletedTurnOrder() {
+        return completedTurnOrder;
+    }
+
+    public Map<String, String> getImmediateStealBlocks() {
+        return immediateStealBlocks;
+    }
+
+    public List<String> getCompletedCountries() {
+        return completedCountries;
+    }
+
+    public String getCurrentParticipantId() {
+        return currentParticipantId;
+    }
+
+    public boolean isGameStarted() {
+        return gameStarted;
+    }
+
+    public boolean isGameCompleted() {
+        return gameCompleted;
+    }
+
+    public boolean isFinalSwapAvailable() {
+        return finalSwapAvailable;
+    }
+
+    public boolean isFinalSwapUsed() {
+        return finalSwapUsed;
+    }
+
+    public boolean isSwapModeActive() {
+        return swapModeActive;
+    }
+
+    public String getCurrentCountry() {
+        return currentCountry;
+    }
+}
@@ -3,12 +3,14 @@ package com.example.whiteelephant.dto;
 import com.example.whiteelephant.model.GameState;
 import com.example.whiteelephant.model.Gift;
 import com.example.whiteelephant.model.Participant;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 public class GameStateResponse {
+    private final String gameId;
+    private final long version;
     private final List<ParticipantView> participants;
     private final List<GiftView> gifts;
     private final List<String> upcomingTurnOrder;
@@ -24,8 +26,11 @@ public class GameStateResponse {
     private final List<String> countrySequence;
     private final List<String> completedCountries;
     private final String currentCountry;
+    private final List<String> swapOrder;
 
-    private GameStateResponse(List<ParticipantView> participants,
+    private GameStateResponse(String gameId,
+                              long version,
+                              List<ParticipantView> participants,
                               List<GiftView> gifts,
                               List<String> upcomingTurnOrder,
                               List<String> completedTurnOrder,
@@ -39,7 +44,10 @@ public class GameStateResponse {
                               String firstParticipantId,
                               List<String> countrySequence,
                               List<String> completedCountries,
-                              String currentCountry) {
+                              String currentCountry,
+                              List<String> swapOrder) {
+        this.gameId = gameId;
+        this.version = version;
         this.participants = participants;
         this.gifts = gifts;
         this.upcomingTurnOrder = upcomingTurnOrder;
@@ -55,29 +63,39 @@ public class GameStateResponse {
         this.countrySequence = countrySequence;
         this.completedCountries = completedCountries;
         this.currentCountry = currentCountry;
+        this.swapOrder = swapOrder;
     }
 
     public static GameStateResponse from(GameState state) {
-        List<Participant> participantEntities = state.getParticipants();
-        List<ParticipantView> participants = java.util.stream.IntStream
-                .range(0, participantEntities.size())
-                .mapToObj(index -> ParticipantView.from(participantEntities.get(index), index + 1))
-                .collect(Collectors.toList());
-
-        List<GiftView> gifts = state.getGifts().stream()
-                .map(GiftView::from)
-                .collect(Collectors.toList());
+        ParticipantView[] participants = new ParticipantView[state.getParticipantCount()];
+        for (int position = 0; position < participants.length; position++) {
+            int participant = state.getPlayOrderParticipant(position);
+            participants[position] = ParticipantView.from(
+                    state.getParticipant(participant),
+                    state.getGameId(),
+                    state.getParticipantGiftId(participant),
+                    position + 1);
+        }
 
-        List<String> upcoming = state.getTurnQueue().stream().collect(Collectors.toList());
-        List<String> completed = List.copyOf(state.getCompletedTurnOrder());
-        Map<String, String> blocks = Map.copyOf(state.getImmediateStealBlocks());
+        GiftView[] gifts = new GiftView[state.getGiftCount()];
+        for (int gift = 0; gift < gifts.length; gift++) {
+            gifts[gift] = GiftView.from(
+                    state.getGift(gift),
+                    state.getGameId(),
+                    state.isGiftRevealed(gift),
+                    state.getGiftOwnerId(gift),
+                    state.getGiftTimesStolen(gift),
+                    state.isGiftLocked(gift));
+        }
 
         return new GameStateResponse(
-                participants,
-                gifts,
-                upcoming,
-                completed,
-                blocks,
+                state.getGameId(),
+                state.getVersion(),
+                List.of(participants),
+                List.of(gifts),
+                state.getUpcomingTurnOrder(),
+                state.getCompletedTurnOrder(),
+                state.getImmediateStealBlocks(),
                 state.getCurrentParticipantId(),
                 state.isGameStarted(),
                 state.isGameCompleted(),
@@ -85,12 +103,26 @@ public class GameStateResponse {
                 state.isFinalSwapUsed(),
                 state.isSwapModeActive(),
                 state.getFirstParticipantId(),
-                List.copyOf(state.getCountrySequence()),
-                List.copyOf(state.getCompletedCountries()),
-                state.getCurrentCountry()
+                state.getCountrySequence(),
+                state.getCompletedCountries(),
+                state.getCurrentCountryName(),
+                state.getSwapOrder()
         );
     }
 
+    /** Base path of the routes for {@code gameId}; the default game (or null) keeps the unprefixed routes. */
+    public static String apiPrefix(String gameId) {
+        return gameId == null || GameState.DEFAULT_GAME_ID.equals(gameId) ? "/api" : "/api/games/" + gameId;
+    }
+
+    public String getGameId() {
+        return gameId;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
     public List<ParticipantView> getParticipants() {
         return participants;
     }
@@ -151,6 +183,12 @@ public class GameStateResponse {
         return currentCountry;
     }
 
+    /** Who acts next in the swap round under way; kept for participant views rather than sent with the state. */
+    @JsonIgnore
+    public List<String> getSwapOrder() {
+        return swapOrder;
+    }
+
     public static class ParticipantView {
         private final String id;
         private final String name;
@@ -168,13 +206,18 @@ public class GameStateResponse {
             this.playOrder = playOrder;
         }
 
-        public static ParticipantView from(Participant participant, int playOrder) {
+        public static ParticipantView from(Participant participant,
+                                           String gameId,
+                                           String currentGiftId,
+                                           int playOrder) {
             return new ParticipantView(
                     participant.getId(),
                     participant.getName(),
-                    participant.getPhotoUrl(),
+                    participant.getPhotoUrl() == null
+                            ? null
+                            : apiPrefix(gameId) + "/participants/" + participant.getId() + "/avatar",
                     participant.getCountry(),
-                    participant.getCurrentGiftId(),
+                    currentGiftId,
                     playOrder
             );
         }
@@ -211,6 +254,7 @@ public class GameStateResponse {
         private final String url;
         private final List<String> imageUrls;
         private final String imageUrl;
+        private final List<String> sourceImageUrls;
         private final boolean revealed;
         private final String originalOwnerParticipantId;
         private final String winnerParticipantId;
@@ -224,6 +268,7 @@ public class GameStateResponse {
                          String url,
                          List<String> imageUrls,
                          String imageUrl,
+                         List<String> sourceImageUrls,
                          boolean revealed,
                          String originalOwnerParticipantId,
                          String winnerParticipantId,
@@ -236,6 +281,7 @@ public class GameStateResponse {
             this.url = url;
             this.imageUrls = imageUrls;
             this.imageUrl = imageUrl;
+            this.sourceImageUrls = sourceImageUrls;
             this.revealed = revealed;
             this.originalOwnerParticipantId = originalOwnerParticipantId;
             this.winnerParticipantId = winnerParticipantId;
@@ -244,8 +290,13 @@ public class GameStateResponse {
             this.locked = locked;
         }
 
-        public static GiftView from(Gift gift) {
-            List<String> proxyImageUrls = buildProxyUrls(gift);
+        public static GiftView from(Gift gift,
+                                    String gameId,
+                                    boolean revealed,
+                                    String winnerParticipantId,
+                                    int timesStolen,
+                                    boolean locked) {
+            List<String> proxyImageUrls = buildProxyUrls(gift, gameId);
             String primaryProxyUrl = proxyImageUrls.isEmpty() ? null : proxyImageUrls.get(0);
 
             return new GiftView(
@@ -255,24 +306,26 @@ public class GameStateResponse {
                     gift.getUrl(),
                     proxyImageUrls,
                     primaryProxyUrl,
-                    gift.isRevealed(),
+                    gift.getImageUrls(),
+                    revealed,
                     gift.getOriginalOwnerParticipantId(),
-                    gift.getWinnerParticipantId(),
+                    winnerParticipantId,
                     gift.getCountry(),
-                    gift.getTimesStolen(),
-                    gift.isLocked()
+                    timesStolen,
+                    locked
             );
         }
 
-        private static List<String> buildProxyUrls(Gift gift) {
+        private static List<String> buildProxyUrls(Gift gift, String gameId) {
             List<String> originals = gift.getImageUrls();
             if (originals == null || originals.isEmpty()) {
                 return List.of();
             }
+            String prefix = apiPrefix(gameId);
             String giftId = gift.getId();
             return java.util.stream.IntStream.range(0, originals.size())
-                    .mapToObj(index -> "/api/gifts/" + giftId + "/images/" + index)
-                    .collect(java.util.stream.Collectors.toList());
+                    .mapToObj(index -> prefix + "/gifts/" + giftId + "/images/" + index)
+                    .toList();
         }
 
         public String getId() {
@@ -299,6 +352,12 @@ public class GameStateResponse {
             return imageUrl;
         }
 
+        /** The origin URLs behind {@link #getImageUrls()}; kept for the image proxy rather than sent with the state. */
+        @JsonIgnore
+        public List<String> getSourceImageUrls() {
+            return sourceImageUrls;
+        }
+
         public boolean isRevealed() {
             return revealed;
         }
@@ -0,0 +1,146 @@
+package com.example.whiteelephant.dto;
+
+import com.example.whiteelephant.dto.GameStateResponse.GiftView;
+import com.example.whiteelephant.dto.GameStateResponse.ParticipantView;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * What one participant's screen shows: their country's gifts, the gift they brought and the one they hold, where they
+ * stand in the queue and whose turn it is. Gifts and people from other countries are left out.
+ */
+public class ParticipantStateResponse {
+    private final String gameId;
+    private final long version;
+    private final ParticipantView participant;
+    private final ParticipantView currentParticipant;
+    private final String queue;
+    private final Integer queuePosition;
+    private final List<ParticipantView> nextUp;
+    private final List<GiftView> gifts;
+    private final Map<String, Integer> giftPositions;
+    private final List<ParticipantView> giftHolders;
+    private final String broughtGiftId;
+    private final GiftView currentGift;
+    private final int giftCount;
+    private final int revealedGiftCount;
+    private final int turnsPlayed;
+    private final boolean gameStarted;
+    private final boolean gameCompleted;
+    private final boolean swapModeActive;
+    private final String currentCountry;
+
+    public ParticipantStateResponse(GameStateResponse state,
+                                    ParticipantView participant,
+                                    ParticipantView currentParticipant,
+                                    String queue,
+                                    Integer queuePosition,
+                                    List<ParticipantView> nextUp,
+                                    List<GiftView> gifts,
+                                    Map<String, Integer> giftPositions,
+                                    List<ParticipantView> giftHolders,
+                                    String broughtGiftId,
+                                    GiftView currentGift,
+                                    int revealedGiftCount) {
+        this.gameId = state.getGameId();
+        this.version = state.getVersion();
+        this.participant = participant;
+        this.currentParticipant = currentParticipant;
+        this.queue = queue;
+        this.queuePosition = queuePosition;
+        this.nextUp = nextUp;
+        this.gifts = gifts;
+        this.giftPositions = giftPositions;
+        this.giftHolders = giftHolders;
+        this.broughtGiftId = broughtGiftId;
+        this.currentGift = currentGift;
+        this.giftCount = state.getGifts().size();
+        this.revealedGiftCount = revealedGiftCount;
+        this.turnsPlayed = state.getCompletedTurnOrder().size();
+        this.gameStarted = state.isGameStarted();
+        this.gameCompleted = state.isGameCompleted();
+        this.swapModeActive = state.isSwapModeActive();
+        this.currentCountry = state.getCurrentCountry();
+    }
+
+    public String getGameId() {
+        return gameId;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public ParticipantView getParticipant() {
+        return participant;
+    }
+
+    public ParticipantView getCurrentParticipant() {
+        return currentParticipant;
+    }
+
+    /** {@code "swap"} while in the current swap round's queue, {@code "turn"} while waiting to unwrap, else null. */
+    public String getQueue() {
+        return queue;
+    }
+
+    /** 1 when it is this participant's go. */
+    public Integer getQueuePosition() {
+        return queuePosition;
+    }
+
+    public List<ParticipantView> getNextUp() {
+        return nextUp;
+    }
+
+    public List<GiftView> getGifts() {
+        return gifts;
+    }
+
+    /** Each gift's number in the whole lineup, as the host sees it. */
+    public Map<String, Integer> getGiftPositions() {
+        return giftPositions;
+    }
+
+    /** Whoever holds one of {@link #getGifts()}, so cards can name their holders. */
+    public List<ParticipantView> getGiftHolders() {
+        return giftHolders;
+    }
+
+    public String getBroughtGiftId() {
+        return broughtGiftId;
+    }
+
+    public GiftView getCurrentGift() {
+        return currentGift;
+    }
+
+    public int getGiftCount() {
+        return giftCount;
+    }
+
+    public int getRevealedGiftCount() {
+        return revealedGiftCount;
+    }
+
+    public int getTurnsPlayed() {
+        return turnsPlayed;
+    }
+
+    public boolean isGameStarted() {
+        return gameStarted;
+    }
+
+    public boolean isGameCompleted() {
+        return gameCompleted;
+    }
+
+    public boolean isSwapModeActive() {
+        return swapModeActive;
+    }
+
+    public String getCurrentCountry() {
+        return currentCountry;
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.whiteelephant.dto;
+
+import java.util.List;
+
+/**
+ * One page of participants or gifts from a published snapshot. Pass {@code nextCursor} back as {@code cursor} for the
+ * following page; it is null on the last one.
+ */
+public class StatePage {
+    private final String gameId;
+    private final long version;
+    private final List<?> items;
+    private final String nextCursor;
+
+    public StatePage(String gameId, long version, List<?> items, String nextCursor) {
+        this.gameId = gameId;
+        this.version = version;
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    public String getGameId() {
+        return gameId;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public List<?> getItems() {
+        return items;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+}
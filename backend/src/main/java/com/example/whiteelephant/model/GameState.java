@@ -1,32 +1,178 @@
 package com.example.whiteelephant.model;
 
-import java.util.ArrayDeque;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Deque;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
+import java.util.Objects;
 
+/**
+ * Game state with every participant, gift and country interned to a dense int. Ownership, steal counts, blocks and
+ * queues live in primitive arrays and {@link IntRingBuffer}s; string ids only appear in the lookup methods and in the
+ * list accessors used to build responses.
+ */
 public class GameState {
-    private final List<Participant> participants = new ArrayList<>();
-    private final List<Gift> gifts = new ArrayList<>();
-    private final List<String> countrySequence = new ArrayList<>();
-    private final List<String> completedCountries = new ArrayList<>();
-    private final Deque<String> turnQueue = new ArrayDeque<>();
-    private final Deque<String> swapQueue = new ArrayDeque<>();
-    private final Deque<String> pendingSwapCountries = new ArrayDeque<>();
-    private final List<String> completedTurnOrder = new ArrayList<>();
-    private final Map<String, String> immediateStealBlocks = new HashMap<>();
-    private final Map<String, Integer> giftSwapCounts = new HashMap<>();
+    /** The game behind the unprefixed {@code /api} routes. */
+    public static final String DEFAULT_GAME_ID = "default";
+    public static final int NONE = -1;
+    public static final int MAX_STEALS_PER_GIFT = 2;
+
+    private final String gameId;
+    private long version;
+
+    private List<Participant> participants = List.of();
+    private List<Gift> gifts = List.of();
+    private List<String> countries = List.of();
+    private final Map<String, Integer> participantIndex = new HashMap<>();
+    /** Replaced whole with each roster rather than edited, so {@link #giftIndexOf} may be called without a lock. */
+    private volatile Map<String, Integer> giftIndex = Map.of();
+    private final Map<String, Integer> countryIndex = new HashMap<>();
+
+    private int[] participantCountry = new int[0];
+    private int[] giftCountry = new int[0];
+    private int[] playOrder = new int[0];
+    private int[][] participantsByCountry = new int[0][];
+    private int[] unrevealedGiftsByCountry = new int[0];
+    private int[] stealableGiftsByCountry = new int[0];
+
+    private int[] participantGift = new int[0];
+    private int[] giftOwner = new int[0];
+    private boolean[] giftRevealed = new boolean[0];
+    private int[] giftTimesStolen = new int[0];
+    private int[] stealBlocks = new int[0];
+    private boolean[] turnCompleted = new boolean[0];
+    private boolean[] countryCompleted = new boolean[0];
+
+    private final IntRingBuffer blockedParticipants = new IntRingBuffer(16);
+    private final IntRingBuffer turnQueue = new IntRingBuffer(16);
+    private final IntRingBuffer swapQueue = new IntRingBuffer(16);
+    private final IntRingBuffer pendingSwapCountries = new IntRingBuffer(16);
+    private final IntRingBuffer completedTurnOrder = new IntRingBuffer(16);
+    private final IntRingBuffer countrySequence = new IntRingBuffer(16);
+    private final IntRingBuffer completedCountries = new IntRingBuffer(16);
+
     private boolean gameStarted;
     private boolean gameCompleted;
     private boolean finalSwapAvailable;
     private boolean finalSwapUsed;
     private boolean swapModeActive;
-    private String firstParticipantId;
-    private String currentParticipantId;
-    private String currentCountry;
+    private int firstParticipant = NONE;
+    private int currentParticipant = NONE;
+    private int currentCountry = NONE;
+
+    public GameState(String gameId) {
+        this.gameId = Objects.requireNonNull(gameId, "gameId");
+    }
+
+    public String getGameId() {
+        return gameId;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void incrementVersion() {
+        this.version++;
+    }
+
+    public void replaceRoster(List<Participant> newParticipants, List<Gift> newGifts) {
+        participants = List.copyOf(newParticipants);
+        gifts = List.copyOf(newGifts);
+        participantIndex.clear();
+        countryIndex.clear();
+
+        List<String> countryNames = new ArrayList<>();
+        int participantCount = participants.size();
+        participantCountry = new int[participantCount];
+        for (int index = 0; index < participantCount; index++) {
+            Participant participant = participants.get(index);
+            participantIndex.put(participant.getId(), index);
+            participantCountry[index] = internCountry(participant.getCountry(), countryNames);
+        }
+        int giftCount = gifts.size();
+        giftCountry = new int[giftCount];
+        Map<String, Integer> newGiftIndex = new HashMap<>(giftCount * 2);
+        for (int index = 0; index < giftCount; index++) {
+            Gift gift = gifts.get(index);
+            newGiftIndex.put(gift.getId(), index);
+            giftCountry[index] = internCountry(gift.getCountry(), countryNames);
+        }
+        giftIndex = newGiftIndex;
+        countries = List.copyOf(countryNames);
+        int countryCount = countries.size();
+
+        participantGift = new int[participantCount];
+        stealBlocks = new int[participantCount];
+        turnCompleted = new boolean[participantCount];
+        Arrays.fill(participantGift, NONE);
+        Arrays.fill(stealBlocks, NONE);
+        giftOwner = new int[giftCount];
+        giftRevealed = new boolean[giftCount];
+        giftTimesStolen = new int[giftCount];
+        Arrays.fill(giftOwner, NONE);
+        countryCompleted = new boolean[countryCount];
+        unrevealedGiftsByCountry = new int[countryCount];
+        stealableGiftsByCountry = new int[countryCount];
+        for (int gift = 0; gift < giftCount; gift++) {
+            unrevealedGiftsByCountry[giftCountry[gift]]++;
+        }
+
+        playOrder = new int[participantCount];
+        for (int index = 0; index < participantCount; index++) {
+            playOrder[index] = index;
+        }
+        indexParticipantsByCountry();
+
+        blockedParticipants.clear();
+        turnQueue.clear();
+        swapQueue.clear();
+        pendingSwapCountries.clear();
+        completedTurnOrder.clear();
+        countrySequence.clear();
+        completedCountries.clear();
+        turnQueue.ensureCapacity(participantCount);
+        swapQueue.ensureCapacity(participantCount);
+        completedTurnOrder.ensureCapacity(participantCount);
+        pendingSwapCountries.ensureCapacity(countryCount);
+        countrySequence.ensureCapacity(countryCount);
+        completedCountries.ensureCapacity(countryCount);
+        firstParticipant = NONE;
+        currentParticipant = NONE;
+        currentCountry = NONE;
+    }
+
+    public void reorderParticipants(int[] order) {
+        if (order.length != playOrder.length) {
+            throw new IllegalArgumentException("Reordered participants must match the current roster");
+        }
+        boolean[] seen = new boolean[order.length];
+        for (int participant : order) {
+            if (participant < 0 || participant >= seen.length || seen[participant]) {
+                throw new IllegalArgumentException("Reordered participants must match the current roster");
+            }
+            seen[participant] = true;
+        }
+        playOrder = order.clone();
+        indexParticipantsByCountry();
+    }
+
+    public int getParticipantCount() {
+        return participants.size();
+    }
+
+    public int getGiftCount() {
+        return gifts.size();
+    }
+
+    public int getCountryCount() {
+        return countries.size();
+    }
 
     public List<Participant> getParticipants() {
         return participants;
@@ -36,36 +182,191 @@ public class GameState {
         return gifts;
     }
 
-    public List<String> getCountrySequence() {
-        return countrySequence;
+    public Participant getParticipant(int participant) {
+        return participants.get(participant);
     }
 
-    public List<String> getCompletedCountries() {
-        return completedCountries;
+    public Gift getGift(int gift) {
+        return gifts.get(gift);
+    }
+
+    public String getCountryName(int country) {
+        return country == NONE ? null : countries.get(country);
+    }
+
+    public int participantIndexOf(String participantId) {
+        Integer index = participantId == null ? null : participantIndex.get(participantId);
+        return index == null ? NONE : index;
+    }
+
+    public int giftIndexOf(String giftId) {
+        Integer index = giftId == null ? null : giftIndex.get(giftId);
+        return index == null ? NONE : index;
+    }
+
+    public int getPlayOrderParticipant(int position) {
+        return playOrder[position];
     }
 
-    public Deque<String> getTurnQueue() {
+    public int getParticipantCountry(int participant) {
+        return participantCountry[participant];
+    }
+
+    public int getGiftCountry(int gift) {
+        return giftCountry[gift];
+    }
+
+    public int getCountryParticipantCount(int country) {
+        return participantsByCountry[country].length;
+    }
+
+    public int getCountryParticipant(int country, int position) {
+        return participantsByCountry[country][position];
+    }
+
+    public int getUnrevealedGiftCount(int country) {
+        return unrevealedGiftsByCountry[country];
+    }
+
+    public int getStealableGiftCount(int country) {
+        return stealableGiftsByCountry[country];
+    }
+
+    public int getParticipantGift(int participant) {
+        return participantGift[participant];
+    }
+
+    public void setParticipantGift(int participant, int gift) {
+        participantGift[participant] = gift;
+    }
+
+    public int getGiftOwner(int gift) {
+        return giftOwner[gift];
+    }
+
+    public boolean isGiftRevealed(int gift) {
+        return giftRevealed[gift];
+    }
+
+    public int getGiftTimesStolen(int gift) {
+        return giftTimesStolen[gift];
+    }
+
+    public boolean isGiftLocked(int gift) {
+        return giftTimesStolen[gift] >= MAX_STEALS_PER_GIFT;
+    }
+
+    public void revealGift(int gift) {
+        if (giftRevealed[gift]) {
+            return;
+        }
+        boolean wasStealable = isStealable(gift);
+        giftRevealed[gift] = true;
+        unrevealedGiftsByCountry[giftCountry[gift]]--;
+        updateStealable(gift, wasStealable);
+    }
+
+    public void assignGift(int gift, int participant) {
+        boolean wasStealable = isStealable(gift);
+        giftOwner[gift] = participant;
+        updateStealable(gift, wasStealable);
+    }
+
+    public void recordSteal(int gift) {
+        boolean wasStealable = isStealable(gift);
+        giftTimesStolen[gift]++;
+        updateStealable(gift, wasStealable);
+    }
+
+    public int getStealBlock(int participant) {
+        return stealBlocks[participant];
+    }
+
+    public void putStealBlock(int participant, int gift) {
+        if (stealBlocks[participant] == NONE) {
+            blockedParticipants.addLast(participant);
+        }
+        stealBlocks[participant] = gift;
+    }
+
+    public void clearStealBlock(int participant) {
+        if (participant != NONE && stealBlocks[participant] != NONE) {
+            stealBlocks[participant] = NONE;
+            blockedParticipants.remove(participant);
+        }
+    }
+
+    public void clearStealBlocks() {
+        while (!blockedParticipants.isEmpty()) {
+            stealBlocks[blockedParticipants.pollFirst()] = NONE;
+        }
+    }
+
+    public IntRingBuffer getTurnQueue() {
         return turnQueue;
     }
 
-    public Deque<String> getSwapQueue() {
+    public IntRingBuffer getSwapQueue() {
         return swapQueue;
     }
 
-    public Deque<String> getPendingSwapCountries() {
+    public IntRingBuffer getPendingSwapCountries() {
         return pendingSwapCountries;
     }
 
-    public List<String> getCompletedTurnOrder() {
-        return completedTurnOrder;
+    public boolean hasCompletedTurns() {
+        return !completedTurnOrder.isEmpty();
     }
 
-    public Map<String, String> getImmediateStealBlocks() {
-        return immediateStealBlocks;
+    public void recordCompletedTurn(int participant) {
+        if (!turnCompleted[participant]) {
+            turnCompleted[participant] = true;
+            completedTurnOrder.addLast(participant);
+        }
+    }
+
+    public void clearCompletedTurnOrder() {
+        while (!completedTurnOrder.isEmpty()) {
+            turnCompleted[completedTurnOrder.pollFirst()] = false;
+        }
     }
 
-    public Map<String, Integer> getGiftSwapCounts() {
-        return giftSwapCounts;
+    public void resetCountrySequence() {
+        countrySequence.clear();
+        boolean[] seen = new boolean[countries.size()];
+        for (int participant : playOrder) {
+            int country = participantCountry[participant];
+            if (!seen[country]) {
+                seen[country] = true;
+                countrySequence.addLast(country);
+            }
+        }
+    }
+
+    public boolean isCountryCompleted(int country) {
+        return countryCompleted[country];
+    }
+
+    public void markCountryCompleted(int country) {
+        if (!countryCompleted[country]) {
+            countryCompleted[country] = true;
+            completedCountries.addLast(country);
+        }
+    }
+
+    public void clearCompletedCountries() {
+        while (!completedCountries.isEmpty()) {
+            countryCompleted[completedCountries.pollFirst()] = false;
+        }
+    }
+
+    public boolean areAllCountriesCompleted() {
+        for (int index = 0; index < countrySequence.size(); index++) {
+            if (!countryCompleted[countrySequence.get(index)]) {
+                return false;
+            }
+        }
+        return true;
     }
 
     public boolean isGameStarted() {
@@ -108,36 +409,293 @@ public class GameState {
         this.swapModeActive = swapModeActive;
     }
 
-    public String getFirstParticipantId() {
-        return firstParticipantId;
+    public int getFirstParticipant() {
+        return firstParticipant;
     }
 
-    public void setFirstParticipantId(String firstParticipantId) {
-        this.firstParticipantId = firstParticipantId;
+    public void setFirstParticipant(int firstParticipant) {
+        this.firstParticipant = firstParticipant;
     }
 
-    public String getCurrentParticipantId() {
-        return currentParticipantId;
+    public int getCurrentParticipant() {
+        return currentParticipant;
     }
 
-    public void setCurrentParticipantId(String currentParticipantId) {
-        this.currentParticipantId = currentParticipantId;
+    public void setCurrentParticipant(int currentParticipant) {
+        this.currentParticipant = currentParticipant;
     }
 
-    public String getCurrentCountry() {
+    public int getCurrentCountry() {
         return currentCountry;
     }
 
-    public void setCurrentCountry(String currentCountry) {
+    public void setCurrentCountry(int currentCountry) {
         this.currentCountry = currentCountry;
     }
 
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeLong(version);
+        out.writeInt(participants.size());
+        for (Participant participant : participants) {
+            out.writeUTF(participant.getId());
+            out.writeUTF(participant.getName());
+            writeNullableUTF(out, participant.getPhotoUrl());
+            out.writeUTF(participant.getCountry());
+        }
+        out.writeInt(gifts.size());
+        for (Gift gift : gifts) {
+            out.writeUTF(gift.getId());
+            out.writeUTF(gift.getName());
+            out.writeUTF(gift.getDescription());
+            out.writeUTF(gift.getUrl());
+            out.writeInt(gift.getImageUrls().size());
+            for (String imageUrl : gift.getImageUrls()) {
+                out.writeUTF(imageUrl);
+            }
+            out.writeUTF(gift.getOriginalOwnerParticipantId());
+            out.writeUTF(gift.getCountry());
+        }
+
+        writeInts(out, playOrder);
+        writeInts(out, participantGift);
+        writeInts(out, giftOwner);
+        writeInts(out, giftTimesStolen);
+        for (boolean revealed : giftRevealed) {
+            out.writeBoolean(revealed);
+        }
+        out.writeInt(blockedParticipants.size());
+        for (int index = 0; index < blockedParticipants.size(); index++) {
+            int participant = blockedParticipants.get(index);
+            out.writeInt(participant);
+            out.writeInt(stealBlocks[participant]);
+        }
+        writeBuffer(out, turnQueue);
+        writeBuffer(out, swapQueue);
+        writeBuffer(out, pendingSwapCountries);
+        writeBuffer(out, completedTurnOrder);
+        writeBuffer(out, countrySequence);
+        writeBuffer(out, completedCountries);
+
+        out.writeBoolean(gameStarted);
+        out.writeBoolean(gameCompleted);
+        out.writeBoolean(finalSwapAvailable);
+        out.writeBoolean(finalSwapUsed);
+        out.writeBoolean(swapModeActive);
+        out.writeInt(firstParticipant);
+        out.writeInt(currentParticipant);
+        out.writeInt(currentCountry);
+    }
+
+    public void readFrom(DataInput in) throws IOException {
+        long restoredVersion = in.readLong();
+        List<Participant> restoredParticipants = new ArrayList<>();
+        for (int count = in.readInt(); count > 0; count--) {
+            restoredParticipants.add(new Participant(in.readUTF(), in.readUTF(), readNullableUTF(in), in.readUTF()));
+        }
+        List<Gift> restoredGifts = new ArrayList<>();
+        for (int count = in.readInt(); count > 0; count--) {
+            String id = in.readUTF();
+            String name = in.readUTF();
+            String description = in.readUTF();
+            String url = in.readUTF();
+            List<String> imageUrls = new ArrayList<>();
+            for (int images = in.readInt(); images > 0; images--) {
+                imageUrls.add(in.readUTF());
+            }
+            restoredGifts.add(new Gift(id, name, description, url, imageUrls, in.readUTF(), in.readUTF()));
+        }
+        replaceRoster(restoredParticipants, restoredGifts);
+        reorderParticipants(readInts(in, participants.size()));
+
+        int[] restoredParticipantGift = readInts(in, participants.size());
+        int[] restoredGiftOwner = readInts(in, gifts.size());
+        int[] restoredTimesStolen = readInts(in, gifts.size());
+        for (int gift = 0; gift < gifts.size(); gift++) {
+            if (in.readBoolean()) {
+                revealGift(gift);
+            }
+            assignGift(gift, restoredGiftOwner[gift]);
+            for (int steals = 0; steals < restoredTimesStolen[gift]; steals++) {
+                recordSteal(gift);
+            }
+        }
+        System.arraycopy(restoredParticipantGift, 0, participantGift, 0, participantGift.length);
+        for (int count = in.readInt(); count > 0; count--) {
+            int participant = in.readInt();
+            putStealBlock(participant, in.readInt());
+        }
+        readBuffer(in, turnQueue);
+        readBuffer(in, swapQueue);
+        readBuffer(in, pendingSwapCountries);
+        IntRingBuffer restoredTurns = new IntRingBuffer(participants.size());
+        readBuffer(in, restoredTurns);
+        for (int index = 0; index < restoredTurns.size(); index++) {
+            recordCompletedTurn(restoredTurns.get(index));
+        }
+        readBuffer(in, countrySequence);
+        IntRingBuffer restoredCountries = new IntRingBuffer(countries.size());
+        readBuffer(in, restoredCountries);
+        for (int index = 0; index < restoredCountries.size(); index++) {
+            markCountryCompleted(restoredCountries.get(index));
+        }
+
+        gameStarted = in.readBoolean();
+        gameCompleted = in.readBoolean();
+        finalSwapAvailable = in.readBoolean();
+        finalSwapUsed = in.readBoolean();
+        swapModeActive = in.readBoolean();
+        firstParticipant = in.readInt();
+        currentParticipant = in.readInt();
+        currentCountry = in.readInt();
+        version = restoredVersion;
+    }
+
+    public String getFirstParticipantId() {
+        return participantId(firstParticipant);
+    }
+
+    public String getCurrentParticipantId() {
+        return participantId(currentParticipant);
+    }
+
+    public String getCurrentCountryName() {
+        return getCountryName(currentCountry);
+    }
+
+    public String getParticipantGiftId(int participant) {
+        return giftId(participantGift[participant]);
+    }
+
+    public String getGiftOwnerId(int gift) {
+        return participantId(giftOwner[gift]);
+    }
+
+    public List<String> getUpcomingTurnOrder() {
+        return participantIds(turnQueue);
+    }
+
+    public List<String> getSwapOrder() {
+        return participantIds(swapQueue);
+    }
+
+    public List<String> getCompletedTurnOrder() {
+        return participantIds(completedTurnOrder);
+    }
+
+    public List<String> getCountrySequence() {
+        return countryNames(countrySequence);
+    }
+
+    public List<String> getCompletedCountries() {
+        return countryNames(completedCountries);
+    }
+
+    public Map<String, String> getImmediateStealBlocks() {
+        if (blockedParticipants.isEmpty()) {
+            return Map.of();
+        }
+        Map<String, String> blocks = new HashMap<>();
+        for (int index = 0; index < blockedParticipants.size(); index++) {
+            int participant = blockedParticipants.get(index);
+            blocks.put(participantId(participant), giftId(stealBlocks[participant]));
+        }
+        return Collections.unmodifiableMap(blocks);
+    }
+
+    private String participantId(int participant) {
+        return participant == NONE ? null : participants.get(participant).getId();
+    }
+
+    private String giftId(int gift) {
+        return gift == NONE ? null : gifts.get(gift).getId();
+    }
+
+    private List<String> participantIds(IntRingBuffer buffer) {
+        String[] ids = new String[buffer.size()];
+        for (int index = 0; index < ids.length; index++) {
+            ids[index] = participantId(buffer.get(index));
+        }
+        return List.of(ids);
+    }
+
+    private List<String> countryNames(IntRingBuffer buffer) {
+        String[] names = new String[buffer.size()];
+        for (int index = 0; index < names.length; index++) {
+            names[index] = countries.get(buffer.get(index));
+        }
+        return List.of(names);
+    }
+
+    private static void writeNullableUTF(DataOutput out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readNullableUTF(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeInts(DataOutput out, int[] values) throws IOException {
+        for (int value : values) {
+            out.writeInt(value);
+        }
+    }
+
+    private static int[] readInts(DataInput in, int length) throws IOException {
+        int[] values = new int[length];
+        for (int index = 0; index < length; index++) {
+            values[index] = in.readInt();
+        }
+        return values;
+    }
+
+    private static void writeBuffer(DataOutput out, IntRingBuffer buffer) throws IOException {
+        out.writeInt(buffer.size());
+        for (int index = 0; index < buffer.size(); index++) {
+            out.writeInt(buffer.get(index));
+        }
+    }
+
+    private static void readBuffer(DataInput in, IntRingBuffer buffer) throws IOException {
+        buffer.clear();
+        for (int count = in.readInt(); count > 0; count--) {
+            buffer.addLast(in.readInt());
+        }
+    }
+
+    private int internCountry(String country, List<String> countryNames) {
+        return countryIndex.computeIfAbsent(country, name -> {
+            countryNames.add(name);
+            return countryNames.size() - 1;
+        });
+    }
+
+    private void indexParticipantsByCountry() {
+        int[] counts = new int[countries.size()];
+        for (int participant : playOrder) {
+            counts[participantCountry[participant]]++;
+        }
+        participantsByCountry = new int[counts.length][];
+        for (int country = 0; country < counts.length; country++) {
+            participantsByCountry[country] = new int[counts[country]];
+        }
+        int[] filled = new int[counts.length];
+        for (int participant : playOrder) {
+            int country = participantCountry[participant];
+            participantsByCountry[country][filled[country]++] = participant;
+        }
+    }
 
-    public Optional<Participant> findParticipant(String participantId) {
-        return participants.stream().filter(p -> p.getId().equals(participantId)).findFirst();
+    private void updateStealable(int gift, boolean wasStealable) {
+        boolean stealable = isStealable(gift);
+        if (stealable != wasStealable) {
+            stealableGiftsByCountry[giftCountry[gift]] += stealable ? 1 : -1;
+        }
     }
 
-    public Optional<Gift> findGift(String giftId) {
-        return gifts.stream().filter(g -> g.getId().equals(giftId)).findFirst();
+    private boolean isStealable(int gift) {
+        return giftRevealed[gift] && giftOwner[gift] != NONE && !isGiftLocked(gift);
     }
 }
@@ -1,6 +1,5 @@
 package com.example.whiteelephant.model;
 
-import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 
@@ -12,9 +11,6 @@ public class Gift {
     private final List<String> imageUrls;
     private final String originalOwnerParticipantId;
     private final String country;
-    private String winnerParticipantId;
-    private boolean revealed;
-    private int timesStolen;
 
     public Gift(String id,
                 String name,
@@ -50,8 +46,9 @@ public class Gift {
         return url;
     }
 
+    /** Already immutable, so every snapshot can share it. */
     public List<String> getImageUrls() {
-        return Collections.unmodifiableList(imageUrls);
+        return imageUrls;
     }
 
     public String getPrimaryImageUrl() {
@@ -66,39 +63,4 @@ public class Gift {
         return originalOwnerParticipantId;
     }
 
-    public String getWinnerParticipantId() {
-        return winnerParticipantId;
-    }
-
-    public String getOwnerParticipantId() {
-        return getWinnerParticipantId();
-    }
-
-    public void setWinnerParticipantId(String winnerParticipantId) {
-        this.winnerParticipantId = winnerParticipantId;
-    }
-
-    public void setOwnerParticipantId(String ownerParticipantId) {
-        setWinnerParticipantId(ownerParticipantId);
-    }
-
-    public boolean isRevealed() {
-        return revealed;
-    }
-
-    public void setRevealed(boolean revealed) {
-        this.revealed = revealed;
-    }
-
-    public int getTimesStolen() {
-        return timesStolen;
-    }
-
-    public void incrementTimesStolen() {
-        this.timesStolen++;
-    }
-
-    public boolean isLocked() {
-        return timesStolen >= 2;
-    }
 }
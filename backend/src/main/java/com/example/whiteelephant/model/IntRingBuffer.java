@@ -0,0 +1,121 @@
+package com.example.whiteelephant.model;
+
+import java.util.Arrays;
+
+/**
+ * Growable circular deque of primitive ints. Polling or peeking an empty buffer returns {@code -1}.
+ */
+public final class IntRingBuffer {
+    private int[] elements;
+    private int head;
+    private int size;
+
+    public IntRingBuffer(int capacity) {
+        this.elements = new int[Math.max(4, capacity)];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        head = 0;
+        size = 0;
+    }
+
+    public void ensureCapacity(int capacity) {
+        if (capacity > elements.length) {
+            resize(capacity);
+        }
+    }
+
+    public int get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        return elements[physical(index)];
+    }
+
+    public int peekFirst() {
+        return size == 0 ? -1 : elements[head];
+    }
+
+    public int pollFirst() {
+        if (size == 0) {
+            return -1;
+        }
+        int value = elements[head];
+        head = physical(1);
+        size--;
+        return value;
+    }
+
+    public void addFirst(int value) {
+        if (size == elements.length) {
+            resize(elements.length * 2);
+        }
+        head = head == 0 ? elements.length - 1 : head - 1;
+        elements[head] = value;
+        size++;
+    }
+
+    public void addLast(int value) {
+        if (size == elements.length) {
+            resize(elements.length * 2);
+        }
+        elements[physical(size)] = value;
+        size++;
+    }
+
+    public boolean contains(int value) {
+        return indexOf(value) >= 0;
+    }
+
+    public boolean remove(int value) {
+        int index = indexOf(value);
+        if (index < 0) {
+            return false;
+        }
+        for (int i = index; i < size - 1; i++) {
+            elements[physical(i)] = elements[physical(i + 1)];
+        }
+        size--;
+        return true;
+    }
+
+    private int indexOf(int value) {
+        for (int i = 0; i < size; i++) {
+            if (elements[physical(i)] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private int physical(int index) {
+        int position = head + index;
+        return position >= elements.length ? position - elements.length : position;
+    }
+
+    private void resize(int capacity) {
+        int[] resized = new int[capacity];
+        for (int i = 0; i < size; i++) {
+            resized[i] = elements[physical(i)];
+        }
+        elements = resized;
+        head = 0;
+    }
+
+    @Override
+    public String toString() {
+        int[] values = new int[size];
+        for (int i = 0; i < size; i++) {
+            values[i] = elements[physical(i)];
+        }
+        return Arrays.toString(values);
+    }
+}
@@ -7,7 +7,6 @@ public class Participant {
     private final String name;
     private final String photoUrl;
     private final String country;
-    private String currentGiftId;
 
     public Participant(String id, String name, String photoUrl, String country) {
         this.id = id;
@@ -32,14 +31,6 @@ public class Participant {
         return country;
     }
 
-    public String getCurrentGiftId() {
-        return currentGiftId;
-    }
-
-    public void setCurrentGiftId(String currentGiftId) {
-        this.currentGiftId = currentGiftId;
-    }
-
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -0,0 +1,126 @@
+package com.example.whiteelephant.service;
+
+import com.example.whiteelephant.dto.AvatarAtlasResponse;
+import com.example.whiteelephant.dto.GameStateResponse;
+import com.example.whiteelephant.model.Participant;
+import com.example.whiteelephant.service.ImageCache.CachedImage;
+import com.example.whiteelephant.service.ImageCache.ImageKey;
+import com.example.whiteelephant.service.ImageCache.Lookup;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Serves participant photos through the image cache, and packs a whole roster into one atlas image so the participant
+ * list renders from a single request instead of one per avatar.
+ */
+@Service
+public class AvatarService {
+    /** Twice the 52px avatar the participant list draws, so the atlas stays sharp on high-density screens. */
+    public static final int TILE_SIZE = 104;
+
+    private final GameService gameService;
+    private final ImageCache imageCache;
+    private final ImageOriginClient originClient;
+    private final ImageResizer imageResizer;
+
+    public AvatarService(GameService gameService,
+                         ImageCache imageCache,
+                         ImageOriginClient originClient,
+                         ImageResizer imageResizer) {
+        this.gameService = gameService;
+        this.imageCache = imageCache;
+        this.originClient = originClient;
+        this.imageResizer = imageResizer;
+    }
+
+    public Lookup openAvatar(String gameId, String participantId, Integer width) {
+        Participant participant = gameService.getParticipantOrThrow(gameId, participantId);
+        if (participant.getPhotoUrl() == null || participant.getPhotoUrl().isBlank()) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Participant has no photo");
+        }
+
+        ImageKey original = avatarKey(participant);
+        ImageCache.Loader originLoader = originClient.loaderFor(participant.getPhotoUrl());
+        int variantWidth = width == null ? 0 : imageResizer.variantWidth(width);
+        if (variantWidth == 0) {
+            return imageCache.open(original, originLoader);
+        }
+        return imageCache.open(original.withWidth(variantWidth), imageResizer.loaderFor(
+                () -> imageCache.open(original, originLoader).whenCached(), variantWidth));
+    }
+
+    public AvatarAtlasResponse getAtlas(String gameId) {
+        List<Participant> roster = gameService.getRoster(gameId);
+        int columns = columns(roster.size());
+        int rows = Math.max(1, (roster.size() + columns - 1) / columns);
+        Map<String, AvatarAtlasResponse.Tile> tiles = new LinkedHashMap<>();
+        for (int position = 0; position < roster.size(); position++) {
+            tiles.put(roster.get(position).getId(), new AvatarAtlasResponse.Tile(
+                    (position % columns) * TILE_SIZE, (position / columns) * TILE_SIZE));
+        }
+        String imageUrl = GameStateResponse.apiPrefix(gameId) + "/avatars/atlas/" + rosterKey(roster);
+        return new AvatarAtlasResponse(imageUrl, TILE_SIZE, columns * TILE_SIZE, rows * TILE_SIZE, tiles);
+    }
+
+    /**
+     * Opens the atlas image for the roster that {@code rosterKey} names. The key is part of the URL, so browsers can
+     * keep an atlas until the roster changes, and an old key is refused rather than answered with the wrong tiles.
+     */
+    public Lookup openAtlasImage(String gameId, String rosterKey) {
+        List<Participant> roster = gameService.getRoster(gameId);
+        if (!rosterKey(roster).equals(rosterKey)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Avatar atlas is out of date");
+        }
+
+        List<Supplier<CompletableFuture<CachedImage>>> tiles = new ArrayList<>(roster.size());
+        for (Participant participant : roster) {
+            String photoUrl = participant.getPhotoUrl();
+            if (photoUrl == null || photoUrl.isBlank()) {
+                tiles.add(() -> CompletableFuture.completedFuture(null));
+            } else {
+                ImageKey key = avatarKey(participant);
+                tiles.add(() -> imageCache.open(key, originClient.loaderFor(photoUrl)).whenCached());
+            }
+        }
+        return imageCache.open(new ImageKey("avatar-atlas/" + rosterKey, 0),
+                imageResizer.atlasLoader(tiles, TILE_SIZE, columns(roster.size())));
+    }
+
+    /** Keyed by photo URL rather than participant id, so a re-imported roster with new photos never sees stale ones. */
+    private static ImageKey avatarKey(Participant participant) {
+        return new ImageKey("avatar/" + participant.getPhotoUrl(), 0);
+    }
+
+    private static int columns(int tileCount) {
+        return Math.max(1, (int) Math.ceil(Math.sqrt(tileCount)));
+    }
+
+    private static String rosterKey(List<Participant> roster) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (Participant participant : roster) {
+                digest.update(participant.getId().getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+                if (participant.getPhotoUrl() != null) {
+                    digest.update(participant.getPhotoUrl().getBytes(StandardCharsets.UTF_8));
+                }
+                digest.update((byte) '\n');
+            }
+            return HexFormat.of().formatHex(digest.digest(), 0, 8);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 is not available", ex);
+        }
+    }
+}
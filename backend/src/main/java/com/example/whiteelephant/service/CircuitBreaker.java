@@ -0,0 +1,88 @@
+package com.example.whiteelephant.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Consecutive-failure breaker for one image origin. After {@code failureThreshold} failures in a row it opens and
+ * refuses calls for {@code openDuration}, then lets a single trial call through: success closes it, failure reopens it.
+ */
+public final class CircuitBreaker {
+    private static final Logger log = LoggerFactory.getLogger(CircuitBreaker.class);
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    public record Stats(String name, State state, int consecutiveFailures, long opened, long halfOpened, long closed,
+                        long rejected, long stateSinceMillis) {
+    }
+
+    private final String name;
+    private final int failureThreshold;
+    private final long openMillis;
+    private final LongAdder rejected = new LongAdder();
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private boolean trialInFlight;
+    private long stateSinceMillis = System.currentTimeMillis();
+    private long opened;
+    private long halfOpened;
+    private long closed;
+
+    public CircuitBreaker(String name, int failureThreshold, Duration openDuration) {
+        this.name = name;
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openMillis = openDuration.toMillis();
+    }
+
+    /** Whether a call may go ahead. Every permitted call must be followed by {@link #onSuccess} or {@link #onFailure}. */
+    public synchronized boolean tryAcquire() {
+        if (state == State.OPEN && System.currentTimeMillis() - stateSinceMillis >= openMillis) {
+            transition(State.HALF_OPEN);
+            halfOpened++;
+        }
+        if (state == State.CLOSED) {
+            return true;
+        }
+        if (state == State.HALF_OPEN && !trialInFlight) {
+            trialInFlight = true;
+            return true;
+        }
+        rejected.increment();
+        return false;
+    }
+
+    public synchronized void onSuccess() {
+        consecutiveFailures = 0;
+        trialInFlight = false;
+        if (state != State.CLOSED) {
+            transition(State.CLOSED);
+            closed++;
+        }
+    }
+
+    public synchronized void onFailure() {
+        consecutiveFailures++;
+        trialInFlight = false;
+        if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= failureThreshold)) {
+            transition(State.OPEN);
+            opened++;
+        }
+    }
+
+    public synchronized Stats stats() {
+        return new Stats(name, state, consecutiveFailures, opened, halfOpened, closed, rejected.sum(), stateSinceMillis);
+    }
+
+    private void transition(State next) {
+        if (next == State.OPEN) {
+            log.warn("Circuit for {} opened after {} consecutive failures", name, consecutiveFailures);
+        } else {
+            log.info("Circuit for {} is now {}", name, next);
+        }
+        state = next;
+        stateSinceMillis = System.currentTimeMillis();
+    }
+}
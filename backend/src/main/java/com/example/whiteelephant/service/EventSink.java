@@ -0,0 +1,19 @@
+package com.example.whiteelephant.service;
+
+import java.io.IOException;
+
+/**
+ * One subscriber's connection, written without blocking. A frame may only be written while {@link #isReady()} is
+ * true; once it turns false the sink calls back when it can take more.
+ */
+interface EventSink {
+
+    /** Starts the callbacks: {@code onWritable} after {@link #isReady()} returned false, {@code onClosed} once. */
+    void open(Runnable onWritable, Runnable onClosed);
+
+    boolean isReady();
+
+    void write(byte[] frame) throws IOException;
+
+    void close();
+}
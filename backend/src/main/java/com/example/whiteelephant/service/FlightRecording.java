@@ -0,0 +1,77 @@
+package com.example.whiteelephant.service;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * A Flight Recorder recording that runs for the life of the application with the JDK's low-overhead default settings
+ * plus the game's own events, keeping the last {@code diagnostics.recording.max-age}. It can be dumped on demand and is
+ * written out when the application stops, so a latency spike can be looked into after the party.
+ */
+@Component
+public class FlightRecording implements DisposableBean {
+    private static final DateTimeFormatter FILE_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private final Path directory;
+    private final Recording recording;
+
+    public FlightRecording(@Value("${diagnostics.recording.enabled:true}") boolean enabled,
+                           @Value("${diagnostics.recording.directory:data/recordings}") Path directory,
+                           @Value("${diagnostics.recording.max-age:PT12H}") Duration maxAge,
+                           @Value("${diagnostics.recording.max-bytes:268435456}") long maxBytes)
+            throws IOException, ParseException {
+        this.directory = directory;
+        if (!enabled) {
+            this.recording = null;
+            return;
+        }
+        Files.createDirectories(directory);
+        recording = new Recording(Configuration.getConfiguration("default"));
+        recording.setName("white-elephant");
+        recording.setToDisk(true);
+        recording.setMaxAge(maxAge);
+        recording.setMaxSize(maxBytes);
+        recording.enable(GameActionEvent.class);
+        recording.enable(ImageFetchEvent.class);
+        recording.setDestination(nextFile());
+        recording.setDumpOnExit(true);
+        recording.start();
+    }
+
+    /** Writes what the recording holds so far to a new file and returns it. */
+    public Path dump() throws IOException {
+        if (recording == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Flight recording is disabled");
+        }
+        Path file = nextFile();
+        recording.dump(file);
+        return file;
+    }
+
+    private Path nextFile() {
+        return directory.resolve("white-elephant-" + LocalDateTime.now().format(FILE_TIMESTAMP) + ".jfr")
+                .toAbsolutePath();
+    }
+
+    @Override
+    public void destroy() {
+        if (recording != null) {
+            // Stopping writes the recording to its destination.
+            recording.stop();
+            recording.close();
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.whiteelephant.service;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/** One host action as seen by Flight Recorder; its duration runs from the request to the journal reaching disk. */
+@Name("whiteelephant.GameAction")
+@Label("Game Action")
+@Category("White Elephant")
+@StackTrace(false)
+class GameActionEvent extends Event {
+    @Label("Game")
+    String gameId;
+
+    @Label("Action")
+    String action;
+
+    @Label("Accepted")
+    boolean accepted;
+
+    @Label("Swap Mode Active")
+    @Description("Whether a country's swap phase was running once the action finished")
+    boolean swapModeActive;
+
+    @Label("Current Country")
+    String currentCountry;
+
+    @Label("Monitor Wait")
+    @Timespan(Timespan.NANOSECONDS)
+    long monitorWait;
+
+    @Label("Monitor Held")
+    @Timespan(Timespan.NANOSECONDS)
+    long monitorHeld;
+
+    @Label("Snapshot Build")
+    @Description("Time building the published state, part of the time the monitor was held")
+    @Timespan(Timespan.NANOSECONDS)
+    long snapshotBuild;
+}
@@ -0,0 +1,42 @@
+package com.example.whiteelephant.service;
+
+import java.util.List;
+
+/**
+ * An accepted game action as written to the journal. Shuffles carry the order they produced so replay never depends on
+ * the random source.
+ */
+record GameEvent(Type type, String participantId, String giftId, List<String> order) {
+
+    enum Type {
+        SHUFFLE,
+        UNWRAP,
+        STEAL,
+        PASS,
+        FINISH_SWAP,
+        END,
+        RESET,
+        /** The roster was replaced; the snapshot written with this event carries it. */
+        ROSTER
+    }
+
+    static GameEvent shuffle(List<String> order) {
+        return new GameEvent(Type.SHUFFLE, null, null, List.copyOf(order));
+    }
+
+    static GameEvent unwrap(String participantId, String giftId) {
+        return new GameEvent(Type.UNWRAP, participantId, giftId, List.of());
+    }
+
+    static GameEvent steal(String participantId, String giftId) {
+        return new GameEvent(Type.STEAL, participantId, giftId, List.of());
+    }
+
+    static GameEvent pass(String participantId) {
+        return new GameEvent(Type.PASS, participantId, null, List.of());
+    }
+
+    static GameEvent of(Type type) {
+        return new GameEvent(type, null, null, List.of());
+    }
+}
@@ -0,0 +1,267 @@
+package com.example.whiteelephant.service;
+
+import com.example.whiteelephant.dto.GameStateResponse;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pushes every published snapshot to SSE subscribers. Publishing only queues the event on its game's channel; a small
+ * dispatcher pool fans each channel out in order, with at most one task per channel. Writes use non-blocking IO, so a
+ * client that stops reading never holds a dispatcher thread: its events wait in its own bounded buffer. A subscriber
+ * that falls a whole buffer behind skips to the newest state, and one that has taken nothing for the stall timeout is
+ * dropped. Subscribers that only want to know when to refetch get a bare {@code version} event instead of the state.
+ */
+@Component
+public class GameEventBroadcaster implements GameStateListener, DisposableBean {
+    private static final long STREAM_TIMEOUT_MS = Duration.ofMinutes(30).toMillis();
+    private static final int DISPATCH_THREADS = 4;
+    private static final int CHANNEL_BACKLOG = 1_024;
+    private static final int SUBSCRIBER_BACKLOG = 64;
+
+    private final StateSerializer stateSerializer;
+    private final long stallTimeoutNanos;
+    private final ThreadPoolExecutor dispatcher;
+    private final ConcurrentMap<String, Channel> channels = new ConcurrentHashMap<>();
+
+    public GameEventBroadcaster(StateSerializer stateSerializer,
+                                @Value("${game.events.stall-timeout:PT10S}") Duration stallTimeout) {
+        this.stateSerializer = stateSerializer;
+        this.stallTimeoutNanos = stallTimeout.toNanos();
+        AtomicInteger threadCount = new AtomicInteger();
+        // Unbounded, but each channel keeps at most one fan-out queued, so it never holds more tasks than games.
+        this.dispatcher = new ThreadPoolExecutor(
+                DISPATCH_THREADS,
+                DISPATCH_THREADS,
+                0L,
+                TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "game-events-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    public void subscribe(GameSession session, boolean versionsOnly, HttpServletRequest request,
+                          HttpServletResponse response) throws IOException {
+        subscribe(session, new ServletEventSink(request, response, STREAM_TIMEOUT_MS), versionsOnly);
+    }
+
+    void subscribe(GameSession session, EventSink sink, boolean versionsOnly) {
+        Channel channel = channels.computeIfAbsent(session.getGameId(), id -> new Channel());
+        Subscriber subscriber = new Subscriber(sink, channel, versionsOnly);
+        channel.subscribers.add(subscriber);
+        sink.open(subscriber::pump, subscriber::close);
+        subscriber.offer(new Event(session, session.getState()));
+    }
+
+    public int subscriberCount(String gameId) {
+        Channel channel = channels.get(gameId);
+        return channel == null ? 0 : channel.subscribers.size();
+    }
+
+    public void close(String gameId) {
+        Channel channel = channels.remove(gameId);
+        if (channel != null) {
+            channel.subscribers.forEach(Subscriber::drop);
+        }
+    }
+
+    @Override
+    public void onPublished(GameSession session, GameStateResponse snapshot) {
+        Channel channel = channels.get(session.getGameId());
+        if (channel == null || channel.subscribers.isEmpty()) {
+            return;
+        }
+        Event event = new Event(session, snapshot);
+        while (!channel.pending.offer(event)) {
+            // Far enough behind that nobody gets a delta for the oldest anyway; they get the newer state instead.
+            channel.pending.poll();
+        }
+        if (channel.scheduled.compareAndSet(false, true)) {
+            try {
+                dispatcher.execute(channel::fanOut);
+            } catch (RejectedExecutionException shuttingDown) {
+                channel.scheduled.set(false);
+            }
+        }
+    }
+
+    @Override
+    public void destroy() {
+        dispatcher.shutdownNow();
+        channels.keySet().forEach(this::close);
+    }
+
+    private final class Channel {
+        private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+        private final BlockingQueue<Event> pending = new ArrayBlockingQueue<>(CHANNEL_BACKLOG);
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        private void fanOut() {
+            while (true) {
+                Event event;
+                while ((event = pending.poll()) != null) {
+                    Event next = event;
+                    subscribers.forEach(subscriber -> subscriber.offer(next));
+                }
+                scheduled.set(false);
+                if (pending.isEmpty() || !scheduled.compareAndSet(false, true)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private final class Event {
+        private final GameSession session;
+        private final GameStateResponse snapshot;
+        private volatile byte[] stateFrame;
+        private volatile byte[] deltaFrame;
+        private volatile boolean deltaResolved;
+        private volatile byte[] versionFrame;
+
+        private Event(GameSession session, GameStateResponse snapshot) {
+            this.session = session;
+            this.snapshot = snapshot;
+        }
+
+        private long version() {
+            return snapshot.getVersion();
+        }
+
+        private byte[] stateFrame() {
+            byte[] frame = stateFrame;
+            if (frame == null) {
+                frame = frame("state", stateSerializer.serialize(snapshot).json());
+                stateFrame = frame;
+            }
+            return frame;
+        }
+
+        private byte[] deltaFrame() {
+            if (!deltaResolved) {
+                deltaFrame = session.getStateSince(snapshot.getVersion() - 1)
+                        .filter(delta -> delta.getVersion() == snapshot.getVersion())
+                        .map(delta -> frame("delta", stateSerializer.serializeDelta(delta)))
+                        .orElse(null);
+                deltaResolved = true;
+            }
+            return deltaFrame;
+        }
+
+        private byte[] versionFrame() {
+            byte[] frame = versionFrame;
+            if (frame == null) {
+                frame = frame("version", Long.toString(version()).getBytes(StandardCharsets.UTF_8));
+                versionFrame = frame;
+            }
+            return frame;
+        }
+
+        private byte[] frame(String name, byte[] data) {
+            byte[] head = ("id:" + version() + "\nevent:" + name + "\ndata:").getBytes(StandardCharsets.UTF_8);
+            byte[] frame = Arrays.copyOf(head, head.length + data.length + 2);
+            System.arraycopy(data, 0, frame, head.length, data.length);
+            frame[frame.length - 2] = '\n';
+            frame[frame.length - 1] = '\n';
+            return frame;
+        }
+    }
+
+    private final class Subscriber {
+        private final EventSink sink;
+        private final Channel channel;
+        private final boolean versionsOnly;
+        private final Deque<Event> backlog = new ArrayDeque<>();
+        private long lastSentVersion = -1;
+        private long blockedSinceNanos;
+        private boolean closed;
+
+        private Subscriber(EventSink sink, Channel channel, boolean versionsOnly) {
+            this.sink = sink;
+            this.channel = channel;
+            this.versionsOnly = versionsOnly;
+        }
+
+        private synchronized void offer(Event event) {
+            if (closed) {
+                return;
+            }
+            if (blockedSinceNanos != 0 && System.nanoTime() - blockedSinceNanos > stallTimeoutNanos) {
+                drop();
+                return;
+            }
+            if (backlog.size() >= SUBSCRIBER_BACKLOG) {
+                backlog.clear();
+            }
+            backlog.add(event);
+            pump();
+        }
+
+        /** Writes what the sink takes without blocking; the sink calls back in once it can take the rest. */
+        private synchronized void pump() {
+            while (!closed && !backlog.isEmpty()) {
+                if (!sink.isReady()) {
+                    if (blockedSinceNanos == 0) {
+                        blockedSinceNanos = System.nanoTime();
+                    }
+                    return;
+                }
+                blockedSinceNanos = 0;
+                Event event = backlog.poll();
+                if (event.version() <= lastSentVersion) {
+                    continue;
+                }
+                try {
+                    sink.write(frame(event));
+                    lastSentVersion = event.version();
+                } catch (IOException | RuntimeException ex) {
+                    drop();
+                    return;
+                }
+            }
+            blockedSinceNanos = 0;
+        }
+
+        private byte[] frame(Event event) {
+            if (versionsOnly) {
+                return event.versionFrame();
+            }
+            byte[] delta = lastSentVersion == event.version() - 1 ? event.deltaFrame() : null;
+            return delta != null ? delta : event.stateFrame();
+        }
+
+        private synchronized void drop() {
+            close();
+            sink.close();
+        }
+
+        private synchronized void close() {
+            closed = true;
+            backlog.clear();
+            channel.subscribers.remove(this);
+        }
+    }
+}
@@ -0,0 +1,519 @@
+package com.example.whiteelephant.service;
+
+import com.example.whiteelephant.model.GameState;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only, per-game log of accepted actions. Sessions append under their own monitor; a single writer thread
+ * drains everything queued since its last pass, writes it and fsyncs each touched segment once (group commit).
+ * A snapshot of the full state replaces every earlier segment, so recovery reads one snapshot plus a bounded tail.
+ * A failed write leaves a game failing: its later appends are dropped, since recovery stops at the first gap, and every
+ * ticket from the failed one on is refused by {@link #awaitDurable} until a snapshot rewrites the game's journal.
+ */
+@Component
+public class GameJournal implements DisposableBean {
+    private static final Logger log = LoggerFactory.getLogger(GameJournal.class);
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".bin";
+    private static final int SNAPSHOT_MAGIC = 0x57454731;
+    private static final int MAX_RECORD_BYTES = 1 << 20;
+
+    public record Recorded(long version, GameEvent event) {
+    }
+
+    public record Recovery(byte[] snapshot, List<Recorded> events) {
+        static final Recovery EMPTY = new Recovery(null, List.of());
+    }
+
+    private enum Kind { APPEND, SNAPSHOT, DELETE }
+
+    private record Entry(Kind kind, String gameId, long version, byte[] payload, long ticket) {
+    }
+
+    private final Path directory;
+    private final boolean enabled;
+    private final int snapshotInterval;
+    private final BlockingQueue<Entry> queue = new LinkedBlockingQueue<>();
+    private final Map<String, FileChannel> segments = new HashMap<>();
+    /** First ticket of each failing game that was not written; a successful snapshot of the game clears it. */
+    private final Map<String, Long> failedFrom = new ConcurrentHashMap<>();
+    private final Object durableMonitor = new Object();
+    private final Thread writer;
+    private long lastTicket;
+    /** Every ticket up to this one has been written or has failed; {@link #failedFrom} tells which. */
+    private volatile long processedTicket;
+    private volatile boolean running = true;
+
+    public GameJournal(@Value("${game.journal.directory:data/journal}") Path directory,
+                       @Value("${game.journal.enabled:true}") boolean enabled,
+                       @Value("${game.journal.snapshot-interval:500}") int snapshotInterval) {
+        this.directory = directory;
+        this.enabled = enabled;
+        this.snapshotInterval = Math.max(1, snapshotInterval);
+        if (enabled) {
+            this.writer = new Thread(this::writeLoop, "game-journal");
+            this.writer.setDaemon(true);
+            this.writer.start();
+        } else {
+            this.writer = null;
+        }
+    }
+
+    public static GameJournal disabled() {
+        return new GameJournal(Path.of("."), false, Integer.MAX_VALUE);
+    }
+
+    public int getSnapshotInterval() {
+        return snapshotInterval;
+    }
+
+    public List<String> recoverableGameIds() {
+        if (!enabled || !Files.isDirectory(directory)) {
+            return List.of();
+        }
+        List<String> ids = new ArrayList<>();
+        try (DirectoryStream<Path> games = Files.newDirectoryStream(directory, Files::isDirectory)) {
+            games.forEach(game -> ids.add(game.getFileName().toString()));
+        } catch (IOException ex) {
+            log.warn("Could not list journal directory {}", directory, ex);
+        }
+        return ids;
+    }
+
+    public Recovery recover(String gameId) {
+        Path gameDirectory = directory.resolve(gameId);
+        if (!enabled || !Files.isDirectory(gameDirectory)) {
+            return Recovery.EMPTY;
+        }
+        byte[] snapshot = null;
+        long snapshotVersion = 0;
+        List<Path> snapshots = list(gameDirectory, SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+        for (int index = snapshots.size() - 1; index >= 0 && snapshot == null; index--) {
+            snapshot = readSnapshot(snapshots.get(index));
+            snapshotVersion = versionOf(snapshots.get(index), SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+        }
+        List<Recorded> events = new ArrayList<>();
+        for (Path segment : list(gameDirectory, SEGMENT_PREFIX, SEGMENT_SUFFIX)) {
+            readSegment(segment, snapshot == null ? 0 : snapshotVersion, events);
+        }
+        return new Recovery(snapshot, events);
+    }
+
+    public long append(String gameId, long version, GameEvent event) {
+        if (!enabled) {
+            return 0;
+        }
+        return enqueue(Kind.APPEND, gameId, version, encode(version, event));
+    }
+
+    public long snapshot(GameState state) {
+        if (!enabled) {
+            return 0;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(4096);
+        try {
+            state.writeTo(new DataOutputStream(bytes));
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return enqueue(Kind.SNAPSHOT, state.getGameId(), state.getVersion(), bytes.toByteArray());
+    }
+
+    /**
+     * Moves a game's journal out of the way, untouched, so what it holds outlives the fresh one written next. Game ids
+     * never contain a dot, so the moved directory is not recovered as a game. Call before anything is journalled for
+     * the game.
+     */
+    public Path setAside(String gameId) {
+        Path gameDirectory = directory.resolve(gameId);
+        if (!enabled || !Files.isDirectory(gameDirectory)) {
+            return null;
+        }
+        Path target = directory.resolve(gameId + ".unreplayed-" + System.currentTimeMillis());
+        try {
+            Files.move(gameDirectory, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ex) {
+            // Carrying on would let the next snapshot delete the segments this game could not replay.
+            throw new UncheckedIOException("Could not set aside the journal of game " + gameId, ex);
+        }
+        syncDirectory(directory);
+        return target;
+    }
+
+    public long delete(String gameId) {
+        return enabled ? enqueue(Kind.DELETE, gameId, 0, null) : 0;
+    }
+
+    /** Whether a write for this game has failed since its last snapshot; its appends are dropped until the next one. */
+    public boolean isFailing(String gameId) {
+        return failedFrom.containsKey(gameId);
+    }
+
+    /** Blocks until the ticket has been written, and refuses with 503 when it was not. */
+    public void awaitDurable(String gameId, long ticket) {
+        if (ticket > processedTicket) {
+            synchronized (durableMonitor) {
+                while (ticket > processedTicket && running) {
+                    try {
+                        durableMonitor.wait();
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+            }
+        }
+        Long failed = failedFrom.get(gameId);
+        if (ticket > processedTicket || (failed != null && ticket >= failed)) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                    "The game journal could not be written; the change is not durable");
+        }
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        if (writer == null) {
+            return;
+        }
+        running = false;
+        writer.join(TimeUnit.SECONDS.toMillis(5));
+        segments.values().forEach(GameJournal::closeQuietly);
+        synchronized (durableMonitor) {
+            durableMonitor.notifyAll();
+        }
+    }
+
+    private synchronized long enqueue(Kind kind, String gameId, long version, byte[] payload) {
+        long ticket = ++lastTicket;
+        queue.add(new Entry(kind, gameId, version, payload, ticket));
+        return ticket;
+    }
+
+    private void writeLoop() {
+        List<Entry> batch = new ArrayList<>();
+        // The first ticket appended to each game in this batch, so a failed fsync fails everything after it.
+        Map<String, Long> dirty = new LinkedHashMap<>();
+        while (running || !queue.isEmpty()) {
+            try {
+                Entry first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            queue.drainTo(batch);
+            for (Entry entry : batch) {
+                try {
+                    switch (entry.kind()) {
+                        case APPEND -> {
+                            if (!failedFrom.containsKey(entry.gameId())) {
+                                writeRecord(entry);
+                                dirty.putIfAbsent(entry.gameId(), entry.ticket());
+                            }
+                        }
+                        case SNAPSHOT -> {
+                            dirty.remove(entry.gameId());
+                            writeSnapshot(entry);
+                            if (failedFrom.remove(entry.gameId()) != null) {
+                                log.info("Journal of game {} rewritten at version {}", entry.gameId(), entry.version());
+                            }
+                        }
+                        case DELETE -> {
+                            dirty.remove(entry.gameId());
+                            deleteGame(entry.gameId());
+                            failedFrom.remove(entry.gameId());
+                        }
+                    }
+                } catch (IOException ex) {
+                    log.error("Journal write failed for game {}", entry.gameId(), ex);
+                    if (entry.kind() != Kind.DELETE) {
+                        dirty.remove(entry.gameId());
+                        fail(entry.gameId(), entry.ticket());
+                    }
+                }
+            }
+            dirty.forEach((gameId, firstTicket) -> {
+                try {
+                    segments.get(gameId).force(false);
+                } catch (IOException ex) {
+                    log.error("Journal fsync failed for game {}", gameId, ex);
+                    fail(gameId, firstTicket);
+                }
+            });
+            // Failures are recorded before the waiters for this batch wake up to look for them.
+            synchronized (durableMonitor) {
+                processedTicket = batch.get(batch.size() - 1).ticket();
+                durableMonitor.notifyAll();
+            }
+            batch.clear();
+            dirty.clear();
+        }
+    }
+
+    /**
+     * Marks the game failing from the given ticket on. Its open segment may end in a torn record, so it is closed; the
+     * snapshot that clears the failure deletes it.
+     */
+    private void fail(String gameId, long ticket) {
+        failedFrom.merge(gameId, ticket, Math::min);
+        FileChannel segment = segments.remove(gameId);
+        if (segment != null) {
+            closeQuietly(segment);
+        }
+    }
+
+    private void writeRecord(Entry entry) throws IOException {
+        FileChannel channel = segments.get(entry.gameId());
+        if (channel == null) {
+            Path gameDirectory = Files.createDirectories(directory.resolve(entry.gameId()));
+            channel = FileChannel.open(gameDirectory.resolve(fileName(SEGMENT_PREFIX, entry.version(), SEGMENT_SUFFIX)),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            segments.put(entry.gameId(), channel);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(entry.payload());
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private void writeSnapshot(Entry entry) throws IOException {
+        Path gameDirectory = Files.createDirectories(directory.resolve(entry.gameId()));
+        Path target = gameDirectory.resolve(fileName(SNAPSHOT_PREFIX, entry.version(), SNAPSHOT_SUFFIX));
+        Path temporary = gameDirectory.resolve(target.getFileName() + ".tmp");
+        CRC32 crc = new CRC32();
+        crc.update(entry.payload());
+        ByteBuffer header = ByteBuffer.allocate(12)
+                .putInt(SNAPSHOT_MAGIC)
+                .putInt(entry.payload().length)
+                .putInt((int) crc.getValue())
+                .flip();
+        try (FileChannel channel = FileChannel.open(temporary,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer body = ByteBuffer.wrap(entry.payload());
+            while (header.hasRemaining() || body.hasRemaining()) {
+                channel.write(new ByteBuffer[]{header, body});
+            }
+            channel.force(true);
+        }
+        Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        syncDirectory(gameDirectory);
+
+        FileChannel segment = segments.remove(entry.gameId());
+        if (segment != null) {
+            segment.close();
+        }
+        for (Path file : list(gameDirectory, SEGMENT_PREFIX, SEGMENT_SUFFIX)) {
+            Files.deleteIfExists(file);
+        }
+        for (Path file : list(gameDirectory, SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX)) {
+            if (!file.equals(target)) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    private void deleteGame(String gameId) throws IOException {
+        FileChannel segment = segments.remove(gameId);
+        if (segment != null) {
+            segment.close();
+        }
+        Path gameDirectory = directory.resolve(gameId);
+        if (!Files.isDirectory(gameDirectory)) {
+            return;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(gameDirectory)) {
+            for (Path file : files) {
+                Files.deleteIfExists(file);
+            }
+        }
+        Files.deleteIfExists(gameDirectory);
+    }
+
+    private static byte[] readSnapshot(Path file) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != SNAPSHOT_MAGIC) {
+                log.warn("Ignoring snapshot {} with an unknown header", file);
+                return null;
+            }
+            byte[] payload = new byte[in.readInt()];
+            int expectedCrc = in.readInt();
+            in.readFully(payload);
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            if ((int) crc.getValue() != expectedCrc) {
+                log.warn("Ignoring snapshot {} with a bad checksum", file);
+                return null;
+            }
+            return payload;
+        } catch (IOException ex) {
+            log.warn("Ignoring unreadable snapshot {}", file, ex);
+            return null;
+        }
+    }
+
+    private static void readSegment(Path file, long afterVersion, List<Recorded> events) {
+        long validBytes = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            while (true) {
+                int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException endOfSegment) {
+                    return;
+                }
+                if (length <= 0 || length > MAX_RECORD_BYTES) {
+                    break;
+                }
+                int expectedCrc = in.readInt();
+                byte[] payload = new byte[length];
+                in.readFully(payload);
+                CRC32 crc = new CRC32();
+                crc.update(payload);
+                if ((int) crc.getValue() != expectedCrc) {
+                    break;
+                }
+                Recorded recorded = decode(new ByteArrayInputStream(payload));
+                if (recorded.version() > afterVersion) {
+                    events.add(recorded);
+                }
+                validBytes += 8L + length;
+            }
+        } catch (IOException | IllegalArgumentException ex) {
+            log.debug("Stopped reading {} at a torn record", file, ex);
+        }
+        log.warn("Truncating journal segment {} after {} valid bytes", file, validBytes);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(validBytes);
+            channel.force(true);
+        } catch (IOException ex) {
+            log.warn("Could not truncate journal segment {}", file, ex);
+        }
+    }
+
+    private static byte[] encode(long version, GameEvent event) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeLong(0);
+            out.writeLong(version);
+            out.writeUTF(event.type().name());
+            writeNullableUTF(out, event.participantId());
+            writeNullableUTF(out, event.giftId());
+            out.writeInt(event.order().size());
+            for (String participantId : event.order()) {
+                out.writeUTF(participantId);
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        byte[] frame = bytes.toByteArray();
+        int length = frame.length - 8;
+        CRC32 crc = new CRC32();
+        crc.update(frame, 8, length);
+        ByteBuffer.wrap(frame).putInt(length).putInt((int) crc.getValue());
+        return frame;
+    }
+
+    private static Recorded decode(InputStream payload) throws IOException {
+        DataInputStream in = new DataInputStream(payload);
+        long version = in.readLong();
+        GameEvent.Type type = GameEvent.Type.valueOf(in.readUTF());
+        String participantId = readNullableUTF(in);
+        String giftId = readNullableUTF(in);
+        List<String> order = new ArrayList<>();
+        for (int count = in.readInt(); count > 0; count--) {
+            order.add(in.readUTF());
+        }
+        return new Recorded(version, new GameEvent(type, participantId, giftId, List.copyOf(order)));
+    }
+
+    private static void writeNullableUTF(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readNullableUTF(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static List<Path> list(Path gameDirectory, String prefix, String suffix) {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(gameDirectory, prefix + "*" + suffix)) {
+            stream.forEach(files::add);
+        } catch (IOException ex) {
+            log.warn("Could not list {}", gameDirectory, ex);
+        }
+        files.sort(Comparator.comparingLong(file -> versionOf(file, prefix, suffix)));
+        return files;
+    }
+
+    private static String fileName(String prefix, long version, String suffix) {
+        return prefix + String.format("%020d", version) + suffix;
+    }
+
+    private static long versionOf(Path file, String prefix, String suffix) {
+        String name = file.getFileName().toString();
+        try {
+            return Long.parseLong(name.substring(prefix.length(), name.length() - suffix.length()));
+        } catch (NumberFormatException ex) {
+            return -1;
+        }
+    }
+
+    private static void syncDirectory(Path path) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException ignored) {
+            // Not every platform allows opening a directory; the rename itself is still atomic.
+        }
+    }
+
+    private static void closeQuietly(FileChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+            // Shutting down, or giving up on a segment that failed.
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.whiteelephant.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Game-side meters, scraped from {@code /actuator/prometheus}. Per-route request latency comes from Spring's own
+ * {@code http.server.requests}; these cover what it cannot see: how long an action queued for its game's monitor versus
+ * held it, how long each snapshot took to build, and how often and how much clients poll.
+ */
+@Component
+public class GameMetrics {
+    private record ActionMeters(Timer accepted, Timer rejected, Timer monitorWait, Timer monitorHeld) {
+    }
+
+    private final MeterRegistry registry;
+    private final ConcurrentMap<String, ActionMeters> actions = new ConcurrentHashMap<>();
+    private final Timer snapshotBuild;
+    private final Counter deltaPolls;
+    private final Counter notModifiedPolls;
+    private final Counter jsonPolls;
+    private final Counter gzipPolls;
+    private final DistributionSummary jsonBytes;
+    private final DistributionSummary gzipBytes;
+
+    public GameMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.snapshotBuild = Timer.builder("game.snapshot.build")
+                .description("Time to build the published state after an action")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.deltaPolls = pollCounter("delta");
+        this.notModifiedPolls = pollCounter("not-modified");
+        this.jsonPolls = pollCounter("json");
+        this.gzipPolls = pollCounter("gzip");
+        this.jsonBytes = stateBytes("identity");
+        this.gzipBytes = stateBytes("gzip");
+    }
+
+    /** Meters that go nowhere, for games run outside the application. */
+    public static GameMetrics disabled() {
+        return new GameMetrics(new CompositeMeterRegistry());
+    }
+
+    public void recordAction(String action, boolean accepted, long nanos) {
+        ActionMeters meters = meters(action);
+        (accepted ? meters.accepted() : meters.rejected()).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordMonitor(String action, long waitNanos, long heldNanos) {
+        ActionMeters meters = meters(action);
+        meters.monitorWait().record(waitNanos, TimeUnit.NANOSECONDS);
+        meters.monitorHeld().record(heldNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordSnapshotBuild(long nanos) {
+        snapshotBuild.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordDeltaPoll() {
+        deltaPolls.increment();
+    }
+
+    public void recordNotModifiedPoll() {
+        notModifiedPolls.increment();
+    }
+
+    /** A poll answered with the whole state; {@code bytes} is the body as sent. */
+    public void recordStatePoll(boolean gzip, int bytes) {
+        (gzip ? gzipPolls : jsonPolls).increment();
+        (gzip ? gzipBytes : jsonBytes).record(bytes);
+    }
+
+    private ActionMeters meters(String action) {
+        return actions.computeIfAbsent(action, name -> new ActionMeters(
+                actionTimer(name, "accepted"),
+                actionTimer(name, "rejected"),
+                Timer.builder("game.monitor.wait")
+                        .description("Time an action waited for its game's monitor")
+                        .tag("action", name)
+                        .publishPercentileHistogram()
+                        .register(registry),
+                Timer.builder("game.monitor.held")
+                        .description("Time an action held its game's monitor")
+                        .tag("action", name)
+                        .publishPercentileHistogram()
+                        .register(registry)));
+    }
+
+    private Timer actionTimer(String action, String outcome) {
+        return Timer.builder("game.actions")
+                .description("Host actions, including the wait for the journal to reach disk")
+                .tags("action", action, "outcome", outcome)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    private Counter pollCounter(String response) {
+        return Counter.builder("game.state.polls")
+                .description("State polls by how they were answered")
+                .tag("response", response)
+                .register(registry);
+    }
+
+    private DistributionSummary stateBytes(String encoding) {
+        return DistributionSummary.builder("game.state.payload")
+                .description("Size of full state responses as sent")
+                .baseUnit("bytes")
+                .tag("encoding", encoding)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.whiteelephant.service;
+
+import com.example.whiteelephant.dto.GameStateResponse;
+import com.example.whiteelephant.dto.GameStateResponse.GiftView;
+import com.example.whiteelephant.model.GameState;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Pattern;
+
+@Component
+public class GameRegistry {
+    private static final int MAX_GAMES = 512;
+    private static final Pattern GAME_ID_PATTERN = Pattern.compile("[A-Za-z0-9_-]{1,64}");
+
+    private final ConcurrentMap<String, GameSession> games = new ConcurrentHashMap<>();
+    private final List<GameStateListener> listeners;
+    private final GameJournal journal;
+    private final GameMetrics metrics;
+
+    public GameRegistry(List<GameStateListener> listeners, GameJournal journal, GameMetrics metrics) {
+        this.listeners = List.copyOf(listeners);
+        this.journal = journal;
+        this.metrics = metrics;
+        games.put(GameState.DEFAULT_GAME_ID, newSession(GameState.DEFAULT_GAME_ID));
+        for (String gameId : journal.recoverableGameIds()) {
+            if (GAME_ID_PATTERN.matcher(gameId).matches() && games.size() < MAX_GAMES) {
+                games.computeIfAbsent(gameId, this::newSession);
+            }
+        }
+    }
+
+    /** The game, or null when there is none under that id. */
+    public GameSession find(String gameId) {
+        return games.get(resolveId(gameId));
+    }
+
+    public GameSession require(String gameId) {
+        GameSession session = games.get(resolveId(gameId));
+        if (session == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Game not found");
+        }
+        return session;
+    }
+
+    public GameSession getOrCreate(String gameId) {
+        String id = resolveId(gameId);
+        GameSession existing = games.get(id);
+        if (existing != null) {
+            return existing;
+        }
+        if (games.size() >= MAX_GAMES) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Too many active games");
+        }
+        return games.computeIfAbsent(id, this::newSession);
+    }
+
+    public void remove(String gameId) {
+        String id = resolveId(gameId);
+        if (GameState.DEFAULT_GAME_ID.equals(id)) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "The default game cannot be removed");
+        }
+        GameSession session = games.get(id);
+        if (session == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Game not found");
+        }
+        long deleted = session.close();
+        // Until the files are gone the closed session stays registered, so a game created again under this id cannot
+        // recover the old journal or have its own first writes deleted.
+        journal.awaitDurable(id, deleted);
+        games.remove(id, session);
+    }
+
+    public List<String> gameIds() {
+        List<String> ids = new ArrayList<>(games.keySet());
+        Collections.sort(ids);
+        return ids;
+    }
+
+    private GameSession newSession(String gameId) {
+        return new GameSession(gameId, new GameStateListener() {
+            @Override
+            public void onPublished(GameSession session, GameStateResponse snapshot) {
+                listeners.forEach(listener -> listener.onPublished(session, snapshot));
+            }
+
+            @Override
+            public void onRevealed(GameSession session, List<GiftView> gifts) {
+                listeners.forEach(listener -> listener.onRevealed(session, gifts));
+            }
+
+            @Override
+            public void onReset(GameSession session) {
+                listeners.forEach(listener -> listener.onReset(session));
+            }
+        }, journal, metrics);
+    }
+
+    private static String resolveId(String gameId) {
+        if (gameId == null) {
+            return GameState.DEFAULT_GAME_ID;
+        }
+        if (!GAME_ID_PATTERN.matcher(gameId).matches()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid game id");
+        }
+        return gameId;
+    }
+}
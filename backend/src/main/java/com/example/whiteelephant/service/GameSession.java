@@ -0,0 +1,887 @@
+package com.example.whiteelephant.service;
+
+import com.example.whiteelephant.dto.BatchActionRequest;
+import com.example.whiteelephant.dto.PassTurnRequest;
+import com.example.whiteelephant.dto.GameStateDelta;
+import com.example.whiteelephant.dto.GameStateResponse;
+import com.example.whiteelephant.dto.GameStateResponse.GiftView;
+import com.example.whiteelephant.dto.ParticipantStateResponse;
+import com.example.whiteelephant.dto.StealRequest;
+import com.example.whiteelephant.dto.UnwrapRequest;
+import com.example.whiteelephant.model.GameState;
+import com.example.whiteelephant.model.Gift;
+import com.example.whiteelephant.model.IntRingBuffer;
+import com.example.whiteelephant.model.Participant;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * A single party. Each session guards its own {@link GameState} with its own monitor so parties progress independently.
+ * Every accepted action is appended to the {@link GameJournal} and replayed from it on startup.
+ */
+public final class GameSession {
+    private static final Logger log = LoggerFactory.getLogger(GameSession.class);
+    private static final int NONE = GameState.NONE;
+    private static final int CHANGE_LOG_CAPACITY = 256;
+
+    private static final List<Roster.Entry> BUILT_IN_ROSTER = List.of(
+            new Roster.Entry("Alex Johnson", "https://i.pravatar.cc/150?img=12", "US",
+                    "Aurora Mood Lamp", "Color-shifting LED mood lamp",
+                    "https://m.media-amazon.com/images/I/716OR2JzJxL._AC_SL1500_.jpg"),
+            new Roster.Entry("Sam Patel", "https://i.pravatar.cc/150?img=32", "India",
+                    "Coffee Lab Kit", "Pour-over kit with specialty beans",
+                    "https://m.media-amazon.com/images/I/81F1U6Pp4PL._AC_SL1500_.jpg"),
+            new Roster.Entry("Maya Chen", "https://i.pravatar.cc/150?img=45", "US",
+                    "Game Night Crate", "Board game bundle with snacks",
+                    "https://m.media-amazon.com/images/I/91nVJtXfTCL._AC_SL1500_.jpg"),
+            new Roster.Entry("Lena Rivera", "https://i.pravatar.cc/150?img=18", "India",
+                    "Cozy Knit Throw", "Weighted knit blanket",
+                    "https://m.media-amazon.com/images/I/71r5O-mcWbL._AC_SL1500_.jpg"),
+            new Roster.Entry("Omar Davis", "https://i.pravatar.cc/150?img=67", "US",
+                    "Mixology Flight", "Craft cocktail infusion set",
+                    "https://m.media-amazon.com/images/I/71spD+lNEIL._AC_SL1500_.jpg"),
+            new Roster.Entry("Tara Singh", "https://i.pravatar.cc/150?img=23", "India",
+                    "Plant Buddy", "Self-watering plant terrarium",
+                    "https://m.media-amazon.com/images/I/61dwG6w7JgL._AC_SL1500_.jpg"),
+            new Roster.Entry("Noah Brooks", "https://i.pravatar.cc/150?img=41", "US",
+                    "Smart Hydro Garden", "Countertop herb-growing system",
+                    "https://m.media-amazon.com/images/I/71qdj0pF0cL._AC_SL1500_.jpg"),
+            new Roster.Entry("Riley Kim", "https://i.pravatar.cc/150?img=16", "India",
+                    "Cold Brew Kit", "All-in-one cold brew set with beans",
+                    "https://m.media-amazon.com/images/I/71A7dPu+ZkL._AC_SL1500_.jpg"),
+            new Roster.Entry("Ivy Martinez", "https://i.pravatar.cc/150?img=54", "US",
+                    "Chocolate Tour Box", "International artisan chocolate sampler",
+                    "https://m.media-amazon.com/images/I/71oG0WIC0dL._AC_SL1500_.jpg"),
+            new Roster.Entry("Zoe Thompson", "https://i.pravatar.cc/150?img=21", "India",
+                    "Movie Marathon Pack", "Projector-ready snack and film bundle",
+                    "https://m.media-amazon.com/images/I/81CzV6cRZBL._AC_SL1500_.jpg"),
+            new Roster.Entry("Chris Allen", "https://i.pravatar.cc/150?img=14", "US",
+                    "Campfire Comfort Kit", "Portable fire pit with s'mores set",
+                    "https://m.media-amazon.com/images/I/71bFu6PvxjL._AC_SL1500_.jpg"),
+            new Roster.Entry("Jordan Lee", "https://i.pravatar.cc/150?img=37", "India",
+                    "Artisan Tea Flight", "Curated loose-leaf tasting collection",
+                    "https://m.media-amazon.com/images/I/81kLdZJcG1L._AC_SL1500_.jpg"),
+            new Roster.Entry("Amelia Turner", "https://i.pravatar.cc/150?img=9", "US",
+                    "VR Escape Puzzle", "Immersive escape-room experience voucher",
+                    "https://m.media-amazon.com/images/I/71gZ-T2dpxL._AC_SL1500_.jpg"),
+            new Roster.Entry("Liam Walker", "https://i.pravatar.cc/150?img=28", "India",
+                    "Chef's Toolkit", "Premium knives and prep gadgets",
+                    "https://m.media-amazon.com/images/I/71kAv0vkATL._AC_SL1500_.jpg"),
+            new Roster.Entry("Emma Hughes", "https://i.pravatar.cc/150?img=52", "US",
+                    "Fitness Essentials Pack", "Resistance kit with smart jump rope",
+                    "https://m.media-amazon.com/images/I/71YamcexWTL._AC_SL1500_.jpg"),
+            new Roster.Entry("Harper Scott", "https://i.pravatar.cc/150?img=48", "India",
+                    "Photo Journey Set", "Instant camera with travel book",
+                    "https://m.media-amazon.com/images/I/71PuQjkCh3L._AC_SL1500_.jpg"),
+            new Roster.Entry("Nico Ramirez", "https://i.pravatar.cc/150?img=57", "US",
+                    "Music Lounge Bundle", "Bluetooth speaker and vinyl sampler",
+                    "https://m.media-amazon.com/images/I/71VQpP-rXGL._AC_SL1500_.jpg"),
+            new Roster.Entry("Sophia Bennett", "https://i.pravatar.cc/150?img=11", "India",
+                    "Spa Retreat Set", "Aromatherapy and plush robe",
+                    "https://m.media-amazon.com/images/I/71JjyKX1FHL._AC_SL1500_.jpg"),
+            new Roster.Entry("Owen Parker", "https://i.pravatar.cc/150?img=44", "US",
+                    "Tech Toy Drone", "Compact camera drone with controller",
+                    "https://m.media-amazon.com/images/I/718R8rF4tOL._AC_SL1500_.jpg"),
+            new Roster.Entry("Lucas Nguyen", "https://i.pravatar.cc/150?img=35", "India",
+                    "Sculpt & Create Kit", "Ceramic sculpting starter bundle",
+                    "https://m.media-amazon.com/images/I/71o6C7qb9WL._AC_SL1500_.jpg"));
+
+    private final SecureRandom random = new SecureRandom();
+    private final GameState state;
+    private final GameStateListener listener;
+    private final GameJournal journal;
+    private final GameMetrics metrics;
+    private final StateChangeLog changeLog = new StateChangeLog(CHANGE_LOG_CAPACITY);
+    private volatile GameStateResponse snapshot;
+    private final Object participantIndexLock = new Object();
+    private volatile ParticipantIndex participantIndex;
+    private volatile long journalTicket;
+    private volatile String hostToken;
+    private int eventsSinceSnapshot;
+    private long lastSnapshotBuildNanos;
+    private boolean replaying;
+    private boolean closed;
+    private List<GameEvent> pendingBatch;
+
+    public GameSession(String gameId, GameStateListener listener, GameJournal journal, GameMetrics metrics) {
+        this.state = new GameState(gameId);
+        this.listener = listener;
+        this.journal = journal;
+        this.metrics = metrics;
+        recover();
+    }
+
+    public String getGameId() {
+        return state.getGameId();
+    }
+
+    /** Signs in this game's host, signing out whoever hosted it before; null signs the host out. */
+    public void setHostToken(String token) {
+        hostToken = token;
+    }
+
+    public boolean isHostToken(String token) {
+        return token != null && token.equals(hostToken);
+    }
+
+    /** Starts over with the roster in play, which is the built-in one until another is imported. */
+    private synchronized void resetGameState() {
+        if (state.getParticipantCount() == 0) {
+            Roster roster = Roster.of(BUILT_IN_ROSTER);
+            startOver(roster.participants(), roster.gifts());
+        } else {
+            startOver(state.getParticipants(), state.getGifts());
+        }
+    }
+
+    private void startOver(List<Participant> participants, List<Gift> gifts) {
+        state.setGameStarted(false);
+        state.setGameCompleted(false);
+        state.setFinalSwapAvailable(false);
+        state.setFinalSwapUsed(false);
+        state.setSwapModeActive(false);
+        state.replaceRoster(participants, gifts);
+        initializeGlobalTurnOrder();
+    }
+
+    private void initializeGlobalTurnOrder() {
+        IntRingBuffer turnQueue = state.getTurnQueue();
+        turnQueue.clear();
+        for (int position = 0; position < state.getParticipantCount(); position++) {
+            turnQueue.addLast(state.getPlayOrderParticipant(position));
+        }
+        state.setFirstParticipant(turnQueue.peekFirst());
+        state.setCurrentParticipant(turnQueue.peekFirst());
+
+        state.resetCountrySequence();
+        state.clearCompletedCountries();
+        state.getSwapQueue().clear();
+        state.getPendingSwapCountries().clear();
+        state.setCurrentCountry(NONE);
+    }
+
+    private boolean isGiftFullyLocked(int gift) {
+        return gift != NONE && state.isGiftLocked(gift);
+    }
+
+    private boolean maybeStartCountrySwap(int country) {
+        if (country == NONE || state.isCountryCompleted(country)) {
+            return false;
+        }
+        if (!isCountryReadyForSwap(country)) {
+            return false;
+        }
+        int swapParticipantCount = state.getCountryParticipantCount(country);
+        if (swapParticipantCount == 0) {
+            state.markCountryCompleted(country);
+            return false;
+        }
+        if (isLeadParticipantGiftLocked(country)) {
+            state.markCountryCompleted(country);
+            return false;
+        }
+        if (state.isSwapModeActive()) {
+            if (!state.getPendingSwapCountries().contains(country)) {
+                state.getPendingSwapCountries().addLast(country);
+            }
+            return false;
+        }
+        state.setSwapModeActive(true);
+        state.setFinalSwapAvailable(true);
+        state.setFinalSwapUsed(false);
+        state.setCurrentCountry(country);
+        IntRingBuffer swapQueue = state.getSwapQueue();
+        swapQueue.clear();
+        for (int position = 0; position < swapParticipantCount; position++) {
+            swapQueue.addLast(state.getCountryParticipant(country, position));
+        }
+        state.setCurrentParticipant(swapQueue.peekFirst());
+        state.clearStealBlocks();
+        return true;
+    }
+
+    private boolean isCountryReadyForSwap(int country) {
+        return state.getUnrevealedGiftCount(country) == 0;
+    }
+
+    private boolean isLeadParticipantGiftLocked(int country) {
+        int leadParticipant = state.getCountryParticipant(country, 0);
+        return isGiftFullyLocked(state.getParticipantGift(leadParticipant));
+    }
+
+    /**
+     * Whether anyone in the country could still make a swap. Holding an unlocked gift, that takes a second stealable
+     * gift; holding none, any will do. Otherwise only passes would remain.
+     */
+    private boolean canAnyoneSwap(int country) {
+        int stealable = state.getStealableGiftCount(country);
+        for (int position = 0; position < state.getCountryParticipantCount(country); position++) {
+            int gift = state.getParticipantGift(state.getCountryParticipant(country, position));
+            if (gift == NONE ? stealable > 0 : !isGiftFullyLocked(gift) && stealable > 1) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Ends each swap phase nobody can act in any more, as the host would, and journals it as its own FINISH_SWAP.
+     * Only live actions do this; replay runs just the recorded events, so games journalled before the rule recover as
+     * they were played.
+     */
+    private GameStateResponse finishStalledSwapPhases(GameStateResponse response) {
+        while (state.isSwapModeActive() && state.getCurrentCountry() != NONE
+                && !canAnyoneSwap(state.getCurrentCountry())) {
+            response = finishSwap();
+        }
+        return response;
+    }
+
+    public GameStateResponse getState() {
+        return snapshot;
+    }
+
+    /**
+     * One participant's slice of the published state. The index behind it is built once per version, off the game's
+     * monitor, by whichever poll first sees the new version; everyone else waits for that build or reuses it.
+     */
+    public ParticipantStateResponse getParticipantView(String participantId) {
+        GameStateResponse current = snapshot;
+        ParticipantIndex index = participantIndex;
+        if (index == null || index.source().getVersion() < current.getVersion()) {
+            synchronized (participantIndexLock) {
+                index = participantIndex;
+                if (index == null || index.source().getVersion() < current.getVersion()) {
+                    index = new ParticipantIndex(current);
+                    participantIndex = index;
+                }
+            }
+        }
+        return index.view(participantId);
+    }
+
+    public Optional<GameStateDelta> getStateSince(long sinceVersion) {
+        return changeLog.since(sinceVersion, snapshot);
+    }
+
+    public synchronized GameStateResponse shuffleParticipants() {
+        requireOpen();
+        ensureShuffleAllowed();
+        int[] order = new int[state.getParticipantCount()];
+        for (int position = 0; position < order.length; position++) {
+            order[position] = state.getPlayOrderParticipant(position);
+        }
+        for (int position = order.length; position > 1; position--) {
+            int swapWith = random.nextInt(position);
+            int displaced = order[position - 1];
+            order[position - 1] = order[swapWith];
+            order[swapWith] = displaced;
+        }
+        return applyShuffle(order);
+    }
+
+    private GameStateResponse applyShuffle(int[] order) {
+        state.reorderParticipants(order);
+        state.clearCompletedTurnOrder();
+        state.clearStealBlocks();
+        state.setSwapModeActive(false);
+        state.setFinalSwapAvailable(false);
+        state.setFinalSwapUsed(false);
+        state.setGameStarted(false);
+        initializeGlobalTurnOrder();
+        List<String> orderIds = new ArrayList<>(order.length);
+        for (int participant : order) {
+            orderIds.add(state.getParticipant(participant).getId());
+        }
+        return publishSnapshot(GameEvent.shuffle(orderIds));
+    }
+
+    private void ensureShuffleAllowed() {
+        if (state.hasCompletedTurns() || state.isGameStarted()) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Cannot shuffle after the game has begun");
+        }
+    }
+
+    public synchronized GameStateResponse unwrapGift(UnwrapRequest request) {
+        requireOpen();
+        return finishStalledSwapPhases(unwrap(request.getParticipantId(), request.getGiftId()));
+    }
+
+    private GameStateResponse unwrap(String participantId, String giftId) {
+        int participant = validateCurrentParticipant(participantId);
+        int gift = requireGift(giftId);
+        if (state.isGiftRevealed(gift)) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Gift already revealed");
+        }
+        int country = state.getParticipantCountry(participant);
+        if (country != state.getGiftCountry(gift)) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Gift is not available to this participant");
+        }
+
+        state.clearStealBlock(participant);
+        beginGameIfNeeded();
+        state.revealGift(gift);
+        state.assignGift(gift, participant);
+        state.setParticipantGift(participant, gift);
+        state.recordCompletedTurn(participant);
+        advanceTurnAfterAction();
+        if (!maybeStartCountrySwap(country)) {
+            updateCurrentParticipantFromGlobalQueueIfNeeded();
+            tryFinalizeGameIfReady();
+        } else {
+            maybeAutoFinishCurrentCountry();
+        }
+        return publishSnapshot(GameEvent.unwrap(participantId, giftId));
+    }
+
+    public synchronized GameStateResponse stealGift(StealRequest request) {
+        requireOpen();
+        return finishStalledSwapPhases(steal(request.getParticipantId(), request.getGiftId()));
+    }
+
+    private GameStateResponse steal(String participantId, String giftId) {
+        int current = validateCurrentParticipant(participantId);
+        int gift = requireGift(giftId);
+        if (!state.isGiftRevealed(gift)) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Gift has not been revealed yet");
+        }
+        if (isGiftFullyLocked(gift)) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Gift can no longer be stolen");
+        }
+        if (state.getStealBlock(current) == gift) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Cannot immediately steal back this gift");
+        }
+        int previousOwner = state.getGiftOwner(gift);
+        if (previousOwner == current) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Participant already owns this gift");
+        }
+        if (previousOwner == NONE) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Owner not found");
+        }
+
+        if (state.getParticipantCountry(current) != state.getGiftCountry(gift)) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Gift is not available to this participant");
+        }
+
+        boolean isSwap = state.isSwapModeActive();
+        int previousGift = state.getParticipantGift(current);
+
+        if (isSwap && isGiftFullyLocked(previousGift)) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Current participant's gift has reached the maximum number of swaps");
+        }
+
+        state.clearStealBlock(current);
+        beginGameIfNeeded();
+
+        state.setParticipantGift(current, gift);
+        state.assignGift(gift, current);
+
+        if (previousGift != NONE) {
+            if (isSwap) {
+                state.assignGift(previousGift, previousOwner);
+                state.setParticipantGift(previousOwner, previousGift);
+            } else {
+                state.assignGift(previousGift, NONE);
+                state.setParticipantGift(previousOwner, NONE);
+            }
+        } else {
+            state.setParticipantGift(previousOwner, NONE);
+        }
+
+        state.recordSteal(gift);
+
+        state.putStealBlock(previousOwner, gift);
+        state.recordCompletedTurn(current);
+        rotateQueueAfterSteal(previousOwner);
+        maybeAutoFinishCurrentCountry();
+        return publishSnapshot(GameEvent.steal(participantId, giftId));
+    }
+
+    public synchronized GameStateResponse passTurn(PassTurnRequest request) {
+        requireOpen();
+        return finishStalledSwapPhases(pass(request.getParticipantId()));
+    }
+
+    private GameStateResponse pass(String participantId) {
+        ensureSwapModeActive();
+        int participant = validateCurrentParticipant(participantId);
+        state.clearStealBlock(participant);
+        passCurrentParticipant();
+        maybeAutoFinishCurrentCountry();
+        return publishSnapshot(GameEvent.pass(participantId));
+    }
+
+    public synchronized GameStateResponse endGame() {
+        requireOpen();
+        finalizeGame();
+        return publishSnapshot(GameEvent.of(GameEvent.Type.END));
+    }
+
+    public synchronized GameStateResponse resetGame() {
+        requireOpen();
+        resetGameState();
+        GameStateResponse response = publishSnapshot(GameEvent.of(GameEvent.Type.RESET));
+        if (!replaying) {
+            listener.onReset(this);
+        }
+        return response;
+    }
+
+    /**
+     * Starts a fresh game with the given roster in place of the built-in one. The roster is not in the journal event,
+     * so it is recovered from the snapshot written with it.
+     */
+    public synchronized GameStateResponse replaceRoster(List<Participant> participants, List<Gift> gifts) {
+        requireOpen();
+        if (participants.isEmpty() || gifts.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Roster must have participants and gifts");
+        }
+        if (participants.stream().map(Participant::getId).distinct().count() != participants.size()
+                || gifts.stream().map(Gift::getId).distinct().count() != gifts.size()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Roster ids must be unique");
+        }
+        startOver(participants, gifts);
+        GameStateResponse response = publishSnapshot(GameEvent.of(GameEvent.Type.ROSTER));
+        listener.onReset(this);
+        return response;
+    }
+
+    public synchronized GameStateResponse finishCurrentCountrySwap() {
+        requireOpen();
+        return finishStalledSwapPhases(finishSwap());
+    }
+
+    private GameStateResponse finishSwap() {
+        if (state.isSwapModeActive()) {
+            concludeCurrentCountryPhase();
+            tryFinalizeGameIfReady();
+        }
+        return publishSnapshot(GameEvent.of(GameEvent.Type.FINISH_SWAP));
+    }
+
+    /**
+     * Applies the actions in order as one change: every action is checked exactly as on its own, and if any is refused
+     * the game is put back as it was and nothing is journalled. Each action still gets its own version and journal
+     * event, so recovery replays a batch like separate requests, but the state is published once at the end.
+     */
+    public synchronized GameStateResponse applyBatch(List<BatchActionRequest> actions) {
+        requireOpen();
+        byte[] before = captureState();
+        long versionBefore = state.getVersion();
+        pendingBatch = new ArrayList<>(actions.size());
+        List<GameEvent> events;
+        try {
+            for (int index = 0; index < actions.size(); index++) {
+                try {
+                    applyBatchAction(actions.get(index));
+                } catch (RuntimeException ex) {
+                    // Whatever stopped the batch, nothing of it may outlive it: the next action would be journalled on
+                    // top of a state recovery cannot reproduce.
+                    restoreState(before);
+                    if (ex instanceof ResponseStatusException refused) {
+                        throw new ResponseStatusException(refused.getStatusCode(), "Batch action " + (index + 1)
+                                + " (" + actions.get(index).getType() + "): " + refused.getReason());
+                    }
+                    throw ex;
+                }
+            }
+        } finally {
+            events = pendingBatch;
+            pendingBatch = null;
+        }
+        if (journal.isFailing(state.getGameId())) {
+            writeJournalSnapshot();
+            return publishResponse();
+        }
+        for (int index = 0; index < events.size(); index++) {
+            journalTicket = journal.append(state.getGameId(), versionBefore + index + 1, events.get(index));
+        }
+        eventsSinceSnapshot += events.size();
+        if (eventsSinceSnapshot >= journal.getSnapshotInterval()) {
+            writeJournalSnapshot();
+        }
+        return publishResponse();
+    }
+
+    private void applyBatchAction(BatchActionRequest action) {
+        switch (action.getType()) {
+            case UNWRAP -> unwrap(requireBatchId(action.getParticipantId(), "participantId"),
+                    requireBatchId(action.getGiftId(), "giftId"));
+            case STEAL -> steal(requireBatchId(action.getParticipantId(), "participantId"),
+                    requireBatchId(action.getGiftId(), "giftId"));
+            case PASS -> pass(requireBatchId(action.getParticipantId(), "participantId"));
+            case SWAP_END -> finishSwap();
+        }
+        finishStalledSwapPhases(null);
+    }
+
+    private static String requireBatchId(String id, String field) {
+        if (id == null || id.isBlank()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, field + " is required");
+        }
+        return id;
+    }
+
+    private byte[] captureState() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            state.writeTo(new DataOutputStream(bytes));
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return bytes.toByteArray();
+    }
+
+    private void restoreState(byte[] bytes) {
+        try {
+            state.readFrom(new DataInputStream(new ByteArrayInputStream(bytes)));
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Ends the game for good once any action under way has finished: later actions are refused, so nothing can be
+     * journalled after the deletion queued here. Returns the journal ticket of that deletion.
+     */
+    synchronized long close() {
+        requireOpen();
+        closed = true;
+        return journal.delete(state.getGameId());
+    }
+
+    private void requireOpen() {
+        if (closed) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Game not found");
+        }
+    }
+
+    /** How long the last published snapshot took to build; read it under the session's monitor. */
+    long getLastSnapshotBuildNanos() {
+        return lastSnapshotBuildNanos;
+    }
+
+    /**
+     * Blocks until every action this session has accepted so far is on disk, and refuses with 503 when the journal
+     * could not write one of them. Called after the monitor is released so concurrent games share each fsync.
+     */
+    public void awaitDurable() {
+        journal.awaitDurable(state.getGameId(), journalTicket);
+    }
+
+    private GameStateResponse publishSnapshot(GameEvent event) {
+        state.incrementVersion();
+        if (replaying) {
+            return null;
+        }
+        if (pendingBatch != null) {
+            pendingBatch.add(event);
+            return null;
+        }
+        if (journal.isFailing(state.getGameId())) {
+            // The journal dropped an earlier action, so appending this one would leave a gap recovery stops at.
+            writeJournalSnapshot();
+            return publishResponse();
+        }
+        journalTicket = journal.append(state.getGameId(), state.getVersion(), event);
+        if (++eventsSinceSnapshot >= journal.getSnapshotInterval()
+                || event.type() == GameEvent.Type.RESET
+                || event.type() == GameEvent.Type.ROSTER) {
+            writeJournalSnapshot();
+        }
+        return publishResponse();
+    }
+
+    private GameStateResponse publishResponse() {
+        long started = System.nanoTime();
+        GameStateResponse next = GameStateResponse.from(state);
+        lastSnapshotBuildNanos = System.nanoTime() - started;
+        metrics.recordSnapshotBuild(lastSnapshotBuildNanos);
+        List<GiftView> revealed = changeLog.record(snapshot, next);
+        snapshot = next;
+        listener.onPublished(this, next);
+        if (!revealed.isEmpty()) {
+            listener.onRevealed(this, revealed);
+        }
+        return next;
+    }
+
+    private void writeJournalSnapshot() {
+        journalTicket = journal.snapshot(state);
+        eventsSinceSnapshot = 0;
+    }
+
+    private synchronized void recover() {
+        GameJournal.Recovery recovery = journal.recover(state.getGameId());
+        boolean complete = true;
+        if (!restoreSnapshot(recovery.snapshot())) {
+            complete = recovery.snapshot() == null;
+            resetGameState();
+            state.incrementVersion();
+        }
+        try {
+            for (GameJournal.Recorded recorded : recovery.events()) {
+                if (recorded.version() != state.getVersion() + 1) {
+                    log.error("Game {} journal skips from version {} to {}",
+                            state.getGameId(), state.getVersion(), recorded.version());
+                    complete = false;
+                    break;
+                }
+                applyRecorded(recorded.event());
+            }
+        } catch (RuntimeException ex) {
+            log.error("Game {} journal replay stopped at version {}", state.getGameId(), state.getVersion(), ex);
+            complete = false;
+        }
+        if (!complete) {
+            // A snapshot replaces every segment, so the unreplayed tail is moved out of its way first.
+            Path kept = journal.setAside(state.getGameId());
+            log.error("Game {} resumes at version {}; its journal as found was kept at {}",
+                    state.getGameId(), state.getVersion(), kept);
+            writeJournalSnapshot();
+        } else if (!recovery.events().isEmpty()) {
+            log.info("Recovered game {} at version {}", state.getGameId(), state.getVersion());
+            writeJournalSnapshot();
+        }
+        publishResponse();
+    }
+
+    private boolean restoreSnapshot(byte[] bytes) {
+        if (bytes == null) {
+            return false;
+        }
+        try {
+            state.readFrom(new DataInputStream(new ByteArrayInputStream(bytes)));
+            return true;
+        } catch (IOException | RuntimeException ex) {
+            log.warn("Game {} snapshot could not be restored", state.getGameId(), ex);
+            return false;
+        }
+    }
+
+    /** Runs a recorded event through the rules alone, as recovery does: nothing is journalled or published. */
+    synchronized void applyRecorded(GameEvent event) {
+        replaying = true;
+        try {
+            replay(event);
+        } finally {
+            replaying = false;
+        }
+    }
+
+    private void replay(GameEvent event) {
+        switch (event.type()) {
+            case SHUFFLE -> {
+                ensureShuffleAllowed();
+                int[] order = new int[event.order().size()];
+                for (int position = 0; position < order.length; position++) {
+                    order[position] = state.participantIndexOf(event.order().get(position));
+                }
+                applyShuffle(order);
+            }
+            case UNWRAP -> unwrap(event.participantId(), event.giftId());
+            case STEAL -> steal(event.participantId(), event.giftId());
+            case PASS -> pass(event.participantId());
+            case FINISH_SWAP -> finishSwap();
+            case END -> endGame();
+            case RESET -> resetGame();
+            case ROSTER -> throw new IllegalStateException("A replaced roster can only be recovered from its snapshot");
+        }
+    }
+
+    private void beginGameIfNeeded() {
+        if (!state.isGameStarted()) {
+            state.setGameStarted(true);
+        }
+    }
+
+    /**
+     * A gift as last published, with its revealed flag and image URLs, found without taking the game's monitor. The
+     * index may belong to a roster newer than the snapshot, so the id is checked against what it points at.
+     */
+    public GiftView getPublishedGift(String giftId) {
+        List<GiftView> gifts = snapshot.getGifts();
+        int gift = state.giftIndexOf(giftId);
+        if (gift == NONE || gift >= gifts.size() || !gifts.get(gift).getId().equals(giftId)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Gift not found");
+        }
+        return gifts.get(gift);
+    }
+
+    public synchronized Participant getParticipantOrThrow(String participantId) {
+        int participant = state.participantIndexOf(participantId);
+        if (participant == NONE) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Participant not found");
+        }
+        return state.getParticipant(participant);
+    }
+
+    /** The roster in seeding order, which unlike play order does not change on shuffle. */
+    public synchronized List<Participant> getRoster() {
+        List<Participant> roster = new ArrayList<>(state.getParticipantCount());
+        for (int participant = 0; participant < state.getParticipantCount(); participant++) {
+            roster.add(state.getParticipant(participant));
+        }
+        return roster;
+    }
+
+    private int requireGift(String giftId) {
+        int gift = state.giftIndexOf(giftId);
+        if (gift == NONE) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Gift not found");
+        }
+        return gift;
+    }
+
+    private int validateCurrentParticipant(String participantId) {
+        int participant = state.participantIndexOf(participantId);
+        if (participant == NONE || participant != state.getCurrentParticipant()) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "It is not this participant's turn");
+        }
+        if (state.isGameCompleted()) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "The game has already completed");
+        }
+        return participant;
+    }
+
+    private void advanceTurnAfterAction() {
+        state.getTurnQueue().pollFirst();
+    }
+
+    private void rotateQueueAfterSteal(int returningParticipant) {
+        if (state.isSwapModeActive()) {
+            IntRingBuffer swapQueue = state.getSwapQueue();
+            int actingParticipant = swapQueue.pollFirst();
+            if (actingParticipant != NONE) {
+                swapQueue.addLast(actingParticipant);
+            }
+
+            swapQueue.remove(returningParticipant);
+            swapQueue.addFirst(returningParticipant);
+            state.setCurrentParticipant(returningParticipant);
+            maybeAutoFinishCurrentCountry();
+        } else {
+            IntRingBuffer turnQueue = state.getTurnQueue();
+            int actingParticipant = turnQueue.pollFirst();
+            if (actingParticipant != NONE) {
+                turnQueue.remove(returningParticipant);
+                turnQueue.addFirst(returningParticipant);
+                state.setCurrentParticipant(returningParticipant);
+                updateCurrentParticipantFromGlobalQueueIfNeeded();
+            }
+        }
+    }
+
+    private void passCurrentParticipant() {
+        if (!state.isSwapModeActive()) {
+            return;
+        }
+        IntRingBuffer swapQueue = state.getSwapQueue();
+        int current = swapQueue.pollFirst();
+        if (current != NONE) {
+            swapQueue.addLast(current);
+        }
+        state.setCurrentParticipant(swapQueue.peekFirst());
+    }
+
+    private void updateCurrentParticipantFromGlobalQueueIfNeeded() {
+        if (state.isSwapModeActive()) {
+            return;
+        }
+        if (!state.getTurnQueue().isEmpty()) {
+            state.setCurrentParticipant(state.getTurnQueue().peekFirst());
+        } else {
+            state.setCurrentParticipant(NONE);
+            tryFinalizeGameIfReady();
+        }
+    }
+
+    private void ensureSwapModeActive() {
+        if (!state.isSwapModeActive()) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Swap phase has not begun yet");
+        }
+    }
+
+    private void maybeAutoFinishCurrentCountry() {
+        if (!state.isSwapModeActive()) {
+            return;
+        }
+        int country = state.getCurrentCountry();
+        if (country == NONE) {
+            concludeCurrentCountryPhase();
+            return;
+        }
+        boolean anyStealable = state.getStealableGiftCount(country) > 0;
+        if (!anyStealable || state.getSwapQueue().isEmpty()) {
+            concludeCurrentCountryPhase();
+        }
+    }
+
+    private void concludeCurrentCountryPhase() {
+        int finishedCountry = state.getCurrentCountry();
+        if (finishedCountry != NONE) {
+            state.markCountryCompleted(finishedCountry);
+        }
+        state.setSwapModeActive(false);
+        state.setFinalSwapAvailable(false);
+        state.setFinalSwapUsed(true);
+        state.clearStealBlocks();
+        state.getSwapQueue().clear();
+        state.setCurrentCountry(NONE);
+
+        IntRingBuffer pendingSwapCountries = state.getPendingSwapCountries();
+        while (!pendingSwapCountries.isEmpty()) {
+            int nextCountry = pendingSwapCountries.pollFirst();
+            if (maybeStartCountrySwap(nextCountry)) {
+                return;
+            }
+        }
+
+        updateCurrentParticipantFromGlobalQueueIfNeeded();
+        tryFinalizeGameIfReady();
+    }
+
+    private void tryFinalizeGameIfReady() {
+        if (state.isSwapModeActive()) {
+            return;
+        }
+        if (!state.getPendingSwapCountries().isEmpty()) {
+            int nextCountry = state.getPendingSwapCountries().pollFirst();
+            if (maybeStartCountrySwap(nextCountry)) {
+                return;
+            }
+        }
+        boolean globalQueueEmpty = state.getTurnQueue().isEmpty();
+        boolean allCountriesWrapped = state.areAllCountriesCompleted();
+        if (globalQueueEmpty && allCountriesWrapped) {
+            finalizeGame();
+        }
+    }
+
+    private void finalizeGame() {
+        state.setGameCompleted(true);
+        state.setSwapModeActive(false);
+        state.setFinalSwapAvailable(false);
+        state.setFinalSwapUsed(true);
+        state.clearStealBlocks();
+        state.getTurnQueue().clear();
+        state.getSwapQueue().clear();
+        state.getPendingSwapCountries().clear();
+        state.setCurrentParticipant(NONE);
+        state.setCurrentCountry(NONE);
+    }
+}
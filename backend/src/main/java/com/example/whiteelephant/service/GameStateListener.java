@@ -0,0 +1,22 @@
+package com.example.whiteelephant.service;
+
+import com.example.whiteelephant.dto.GameStateResponse;
+import com.example.whiteelephant.dto.GameStateResponse.GiftView;
+
+import java.util.List;
+
+/**
+ * Called with the session monitor held each time a session publishes a new snapshot, so implementations must not block.
+ */
+public interface GameStateListener {
+    default void onPublished(GameSession session, GameStateResponse snapshot) {
+    }
+
+    /** Called with the session monitor held right after {@link #onPublished} when that version revealed gifts. */
+    default void onRevealed(GameSession session, List<GiftView> gifts) {
+    }
+
+    /** Called with the session monitor held after a host reset, once the fresh snapshot has been published. */
+    default void onReset(GameSession session) {
+    }
+}
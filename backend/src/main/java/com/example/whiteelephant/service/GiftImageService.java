@@ -0,0 +1,64 @@
+package com.example.whiteelephant.service;
+
+import com.example.whiteelephant.dto.GameStateResponse.GiftView;
+import com.example.whiteelephant.service.ImageCache.ImageKey;
+import com.example.whiteelephant.service.ImageCache.Lookup;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+
+@Service
+public class GiftImageService {
+    private final GameService gameService;
+    private final ImageCache imageCache;
+    private final ImageOriginClient originClient;
+    private final ImageResizer imageResizer;
+    private final ImageWarmer imageWarmer;
+
+    public GiftImageService(GameService gameService,
+                            ImageCache imageCache,
+                            ImageOriginClient originClient,
+                            ImageResizer imageResizer,
+                            ImageWarmer imageWarmer) {
+        this.gameService = gameService;
+        this.imageCache = imageCache;
+        this.originClient = originClient;
+        this.imageResizer = imageResizer;
+        this.imageWarmer = imageWarmer;
+    }
+
+    public Lookup openGiftImage(String gameId, String giftId, int index, Integer width) {
+        GiftView gift = gameService.getPublishedGift(gameId, giftId);
+        if (!gift.isRevealed()) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Gift image not available until it is unwrapped");
+        }
+
+        List<String> imageUrls = gift.getSourceImageUrls();
+        if (imageUrls == null || index < 0 || index >= imageUrls.size()) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Image not found");
+        }
+
+        ImageKey original = new ImageKey(gift.getId(), index);
+        ImageCache.Loader originLoader = originClient.loaderFor(imageUrls.get(index));
+        int variantWidth = width == null ? 0 : imageResizer.variantWidth(width);
+        if (variantWidth == 0) {
+            return imageCache.open(original, originLoader);
+        }
+        return imageCache.open(original.withWidth(variantWidth), imageResizer.loaderFor(
+                () -> imageCache.open(original, originLoader).whenCached(), variantWidth));
+    }
+
+    public ImageCache.Stats getCacheStats() {
+        return imageCache.stats();
+    }
+
+    public ImageWarmer.Stats getPrefetchStats() {
+        return imageWarmer.stats();
+    }
+
+    public List<CircuitBreaker.Stats> getOriginStats() {
+        return originClient.breakerStats();
+    }
+}
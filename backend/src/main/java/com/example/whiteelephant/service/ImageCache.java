@@ -0,0 +1,571 @@
+package com.example.whiteelephant.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Disk-backed LRU of proxied images, capped by total file size. Only the index lives on the heap; bodies are written
+ * straight to the cache directory and served from there, so the cache survives restarts. Entries expire with the TTL
+ * the origin advertised. A miss starts one asynchronous download per key, and every request for that key streams from
+ * the partially written file while it grows. Expired entries are kept for a while: if refreshing one fails before the
+ * origin answers, the stale copy is served instead of an error.
+ */
+@Component
+public class ImageCache implements MeterBinder {
+    private static final Logger log = LoggerFactory.getLogger(ImageCache.class);
+    private static final String IMAGE_SUFFIX = ".img";
+    private static final String META_SUFFIX = ".meta";
+    private static final int MAX_DOWNLOADS = 256;
+    private static final int TRANSFER_BUFFER_BYTES = 16 * 1024;
+
+    /** Either a complete {@link CachedImage} or a {@link Download} still in progress. */
+    public sealed interface Lookup permits CachedImage, Download {
+        /** Completes once the image is fully in the cache. */
+        CompletableFuture<CachedImage> whenCached();
+    }
+
+    /**
+     * The {@code index}th image of a gift or other owner, either the original ({@code width == 0}) or a variant
+     * downscaled to {@code width} pixels.
+     */
+    public record ImageKey(String ownerId, int index, int width) {
+        public ImageKey(String ownerId, int index) {
+            this(ownerId, index, 0);
+        }
+
+        public ImageKey withWidth(int variantWidth) {
+            return new ImageKey(ownerId, index, variantWidth);
+        }
+
+        private String fileStem() {
+            String name = width == 0 ? ownerId + "/" + index : ownerId + "/" + index + "@" + width;
+            return HexFormat.of().formatHex(sha256().digest(name.getBytes(StandardCharsets.UTF_8)), 0, 16);
+        }
+    }
+
+    /** {@code contentHash} is a hex SHA-256 prefix of the bytes on disk, usable as a strong validator. */
+    public record CachedImage(Path file, long length, MediaType contentType, long expiresAtMillis, String contentHash)
+            implements Lookup {
+        public boolean isExpired(long nowMillis) {
+            return nowMillis >= expiresAtMillis;
+        }
+
+        @Override
+        public CompletableFuture<CachedImage> whenCached() {
+            return CompletableFuture.completedFuture(this);
+        }
+    }
+
+    /** What the origin said about the body; {@code contentLength} is -1 when it did not say. */
+    public record Fetched(MediaType contentType, long contentLength, Duration timeToLive) {
+    }
+
+    @FunctionalInterface
+    public interface Loader {
+        /**
+         * Starts fetching the image and copies it into the stream returned by {@code receiver} once headers are known.
+         * The returned future completes when the whole body has been written.
+         */
+        CompletableFuture<?> load(Receiver receiver);
+    }
+
+    @FunctionalInterface
+    public interface Receiver {
+        OutputStream begin(Fetched fetched) throws IOException;
+    }
+
+    public record Stats(long hits, long misses, long coalesced, long staleServed, long evictions, int entries, long bytes,
+                        long maxBytes) {
+    }
+
+    private final Path directory;
+    private final long maxBytes;
+    private final Duration defaultTtl;
+    private final long maxStaleMillis;
+    private final LinkedHashMap<ImageKey, CachedImage> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private final ConcurrentMap<ImageKey, Download> inFlight = new ConcurrentHashMap<>();
+    private final Semaphore downloadPermits = new Semaphore(MAX_DOWNLOADS);
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder staleServed = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private long currentBytes;
+
+    public ImageCache(@Value("${media.cache.directory:data/images}") Path directory,
+                      @Value("${media.cache.max-bytes:268435456}") long maxBytes,
+                      @Value("${media.cache.default-ttl:PT10M}") Duration defaultTtl,
+                      @Value("${media.cache.max-stale:PT24H}") Duration maxStale) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        this.defaultTtl = defaultTtl;
+        this.maxStaleMillis = maxStale.toMillis();
+        loadIndex();
+    }
+
+    public Duration getDefaultTtl() {
+        return defaultTtl;
+    }
+
+    public Lookup open(ImageKey key, Loader loader) {
+        CachedImage cached = lookup(key);
+        if (cached != null && !cached.isExpired(System.currentTimeMillis())) {
+            hits.increment();
+            return cached;
+        }
+
+        Download created = new Download(directory.resolve(key.fileStem() + "." + UUID.randomUUID() + ".tmp"), cached);
+        Download existing = inFlight.putIfAbsent(key, created);
+        if (existing != null) {
+            coalesced.increment();
+            return existing;
+        }
+
+        misses.increment();
+        if (!downloadPermits.tryAcquire()) {
+            inFlight.remove(key, created);
+            if (cached != null) {
+                staleServed.increment();
+                return cached;
+            }
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many image downloads in progress");
+        }
+        download(key, created, loader);
+        return created;
+    }
+
+    public synchronized Stats stats() {
+        return new Stats(hits.sum(), misses.sum(), coalesced.sum(), staleServed.sum(), evictions.sum(), entries.size(),
+                currentBytes, maxBytes);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        lookups(registry, "hit", hits);
+        lookups(registry, "miss", misses);
+        lookups(registry, "coalesced", coalesced);
+        lookups(registry, "stale", staleServed);
+        FunctionCounter.builder("media.cache.evictions", evictions, LongAdder::sum)
+                .description("Images evicted to stay under the size cap")
+                .register(registry);
+        Gauge.builder("media.cache.size", this, cache -> cache.stats().bytes())
+                .description("Bytes of images on disk")
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("media.cache.entries", this, cache -> cache.stats().entries())
+                .description("Images on disk")
+                .register(registry);
+    }
+
+    private static void lookups(MeterRegistry registry, String result, LongAdder count) {
+        FunctionCounter.builder("media.cache.lookups", count, LongAdder::sum)
+                .description("Image lookups by how the cache answered them")
+                .tag("result", result)
+                .register(registry);
+    }
+
+    private void download(ImageKey key, Download download, Loader loader) {
+        OutputStream file;
+        try {
+            Files.createDirectories(directory);
+            file = Files.newOutputStream(download.temporaryFile);
+        } catch (IOException ex) {
+            finish(key, download, null, ex);
+            return;
+        }
+
+        CompletableFuture<?> fetch;
+        try {
+            fetch = loader.load(fetched -> {
+                download.begin(fetched);
+                return new ProgressOutputStream(file, download);
+            });
+        } catch (RuntimeException ex) {
+            fetch = CompletableFuture.failedFuture(ex);
+        }
+        fetch.whenComplete((ignored, failure) -> finish(key, download, file, failure));
+    }
+
+    private void finish(ImageKey key, Download download, OutputStream file, Throwable failure) {
+        RuntimeException error = null;
+        try {
+            if (file != null) {
+                file.close();
+            }
+            if (failure != null) {
+                throw failure instanceof CompletionException && failure.getCause() != null
+                        ? failure.getCause()
+                        : failure;
+            }
+            Fetched fetched = download.fetched();
+            if (fetched == null) {
+                throw new ResponseStatusException(HttpStatus.BAD_GATEWAY, "Image unavailable");
+            }
+            Path target = directory.resolve(key.fileStem() + IMAGE_SUFFIX);
+            long length = Files.size(download.temporaryFile);
+            long expiresAt = System.currentTimeMillis() + fetched.timeToLive().toMillis();
+            CachedImage image = new CachedImage(target, length, fetched.contentType(), expiresAt,
+                    contentHash(download.contentDigest));
+            synchronized (this) {
+                Files.move(download.temporaryFile, target,
+                        StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                writeMeta(key, image);
+                store(key, image);
+            }
+            download.complete(image);
+        } catch (IOException ex) {
+            error = new UncheckedIOException(ex);
+        } catch (RuntimeException ex) {
+            error = ex;
+        } catch (Throwable ex) {
+            error = new CompletionException(ex);
+        } finally {
+            // Gone before readers are released, so a stale fallback is read from the cached file instead.
+            deleteQuietly(download.temporaryFile);
+            inFlight.remove(key, download);
+            downloadPermits.release();
+        }
+        if (error != null && download.fail(error)) {
+            staleServed.increment();
+            log.debug("Serving stale image {} after refresh failed", key, error);
+        }
+    }
+
+    /** The entry for {@code key}, possibly expired; entries past the stale window are dropped. */
+    private synchronized CachedImage lookup(ImageKey key) {
+        CachedImage cached = entries.get(key);
+        if (cached != null && cached.isExpired(System.currentTimeMillis() - maxStaleMillis)) {
+            entries.remove(key);
+            currentBytes -= cached.length();
+            deleteFiles(cached);
+            return null;
+        }
+        return cached;
+    }
+
+    private void store(ImageKey key, CachedImage image) {
+        CachedImage previous = entries.put(key, image);
+        if (previous != null) {
+            currentBytes -= previous.length();
+        }
+        currentBytes += image.length();
+        Iterator<Map.Entry<ImageKey, CachedImage>> eldest = entries.entrySet().iterator();
+        while (currentBytes > maxBytes && eldest.hasNext()) {
+            Map.Entry<ImageKey, CachedImage> entry = eldest.next();
+            if (entry.getKey().equals(key)) {
+                continue;
+            }
+            currentBytes -= entry.getValue().length();
+            deleteFiles(entry.getValue());
+            eldest.remove();
+            evictions.increment();
+        }
+    }
+
+    private void writeMeta(ImageKey key, CachedImage image) throws IOException {
+        Properties meta = new Properties();
+        meta.setProperty("ownerId", key.ownerId());
+        meta.setProperty("index", Integer.toString(key.index()));
+        meta.setProperty("width", Integer.toString(key.width()));
+        meta.setProperty("contentType", image.contentType().toString());
+        meta.setProperty("length", Long.toString(image.length()));
+        meta.setProperty("expiresAt", Long.toString(image.expiresAtMillis()));
+        meta.setProperty("contentHash", image.contentHash());
+        try (OutputStream out = Files.newOutputStream(metaFile(image))) {
+            meta.store(out, null);
+        }
+    }
+
+    private synchronized void loadIndex() {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        List<Path> metaFiles = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(META_SUFFIX)) {
+                    metaFiles.add(file);
+                } else if (!name.endsWith(IMAGE_SUFFIX)) {
+                    deleteQuietly(file);
+                }
+            }
+        } catch (IOException ex) {
+            log.warn("Could not read image cache directory {}", directory, ex);
+            return;
+        }
+        metaFiles.sort(Comparator.comparing(ImageCache::lastModified));
+
+        long now = System.currentTimeMillis();
+        for (Path metaFile : metaFiles) {
+            String name = metaFile.getFileName().toString();
+            Path file = directory.resolve(name.substring(0, name.length() - META_SUFFIX.length()) + IMAGE_SUFFIX);
+            try (InputStream in = Files.newInputStream(metaFile)) {
+                Properties meta = new Properties();
+                meta.load(in);
+                ImageKey key = new ImageKey(meta.getProperty("ownerId", meta.getProperty("giftId")),
+                        Integer.parseInt(meta.getProperty("index")),
+                        Integer.parseInt(meta.getProperty("width", "0")));
+                CachedImage image = new CachedImage(file,
+                        Long.parseLong(meta.getProperty("length")),
+                        MediaType.parseMediaType(meta.getProperty("contentType")),
+                        Long.parseLong(meta.getProperty("expiresAt")),
+                        meta.getProperty("contentHash"));
+                if (image.isExpired(now - maxStaleMillis)
+                        || !Files.isRegularFile(file)
+                        || Files.size(file) != image.length()) {
+                    deleteFiles(image);
+                    continue;
+                }
+                if (image.contentHash() == null) {
+                    // Written before entries carried a hash: compute it once and keep it.
+                    image = new CachedImage(image.file(), image.length(), image.contentType(), image.expiresAtMillis(),
+                            hashFile(file));
+                    writeMeta(key, image);
+                }
+                store(key, image);
+            } catch (IOException | RuntimeException ex) {
+                log.warn("Dropping unreadable image cache entry {}", metaFile, ex);
+                deleteQuietly(metaFile);
+                deleteQuietly(file);
+            }
+        }
+        if (!entries.isEmpty()) {
+            log.info("Image cache restored {} entries ({} bytes) from {}", entries.size(), currentBytes, directory);
+        }
+    }
+
+    private static String hashFile(Path file) throws IOException {
+        MessageDigest digest = sha256();
+        try (InputStream in = Files.newInputStream(file)) {
+            byte[] buffer = new byte[TRANSFER_BUFFER_BYTES];
+            for (int read = in.read(buffer); read >= 0; read = in.read(buffer)) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return contentHash(digest);
+    }
+
+    private static String contentHash(MessageDigest digest) {
+        return HexFormat.of().formatHex(digest.digest(), 0, 16);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private void deleteFiles(CachedImage image) {
+        deleteQuietly(metaFile(image));
+        deleteQuietly(image.file());
+    }
+
+    private static Path metaFile(CachedImage image) {
+        String name = image.file().getFileName().toString();
+        return image.file().resolveSibling(name.substring(0, name.length() - IMAGE_SUFFIX.length()) + META_SUFFIX);
+    }
+
+    private static FileTime lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file);
+        } catch (IOException ex) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ex) {
+            log.debug("Could not delete {}", file, ex);
+        }
+    }
+
+    /**
+     * An upstream fetch in progress. Readers wait for the origin's headers, then follow the temporary file as it grows.
+     */
+    public static final class Download implements Lookup {
+        private final Path temporaryFile;
+        private final CachedImage stale;
+        private final MessageDigest contentDigest = sha256();
+        private final CompletableFuture<Fetched> headers = new CompletableFuture<>();
+        private final CompletableFuture<CachedImage> result = new CompletableFuture<>();
+        private long written;
+
+        private Download(Path temporaryFile, CachedImage stale) {
+            this.temporaryFile = temporaryFile;
+            this.stale = stale;
+        }
+
+        /** Blocks until the origin has answered, without waiting for the body. */
+        public Fetched awaitHeaders() {
+            try {
+                return headers.join();
+            } catch (CompletionException ex) {
+                throw ex.getCause() instanceof RuntimeException cause ? cause : ex;
+            }
+        }
+
+        @Override
+        public CompletableFuture<CachedImage> whenCached() {
+            return result.copy();
+        }
+
+        /** Streams the whole body to {@code out} as it arrives, through one fixed-size buffer. */
+        public void transferTo(OutputStream out) throws IOException {
+            try (FileChannel channel = openBody()) {
+                ByteBuffer buffer = ByteBuffer.allocate(TRANSFER_BUFFER_BYTES);
+                long position = 0;
+                for (long available = awaitAvailable(position); available > position; available = awaitAvailable(position)) {
+                    while (position < available) {
+                        buffer.clear().limit((int) Math.min(buffer.capacity(), available - position));
+                        int read = channel.read(buffer, position);
+                        if (read < 0) {
+                            throw new IOException("Image file ended early");
+                        }
+                        out.write(buffer.array(), 0, read);
+                        position += read;
+                    }
+                    out.flush();
+                }
+            }
+        }
+
+        private FileChannel openBody() throws IOException {
+            try {
+                return FileChannel.open(temporaryFile, StandardOpenOption.READ);
+            } catch (NoSuchFileException finishedAlready) {
+                try {
+                    return FileChannel.open(result.join().file(), StandardOpenOption.READ);
+                } catch (CompletionException ex) {
+                    throw new IOException("Image download failed", ex.getCause());
+                }
+            }
+        }
+
+        private Fetched fetched() {
+            return headers.getNow(null);
+        }
+
+        private synchronized long awaitAvailable(long position) throws IOException {
+            while (written <= position && !result.isDone()) {
+                try {
+                    wait();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while streaming image", ex);
+                }
+            }
+            if (result.isCompletedExceptionally()) {
+                throw new IOException("Image download failed");
+            }
+            return written;
+        }
+
+        private void begin(Fetched fetched) {
+            headers.complete(fetched);
+        }
+
+        private synchronized void advance(int bytes) {
+            written += bytes;
+            notifyAll();
+        }
+
+        private synchronized void complete(CachedImage image) {
+            result.complete(image);
+            notifyAll();
+        }
+
+        /**
+         * Fails every reader, unless no bytes have been promised yet and an expired copy exists, in which case readers
+         * get that copy instead. Returns whether the stale copy was used.
+         */
+        private synchronized boolean fail(RuntimeException ex) {
+            boolean useStale = stale != null && !headers.isDone();
+            if (useStale) {
+                written = stale.length();
+                headers.complete(new Fetched(stale.contentType(), stale.length(), Duration.ZERO));
+                result.complete(stale);
+            } else {
+                headers.completeExceptionally(ex);
+                result.completeExceptionally(ex);
+            }
+            notifyAll();
+            return useStale;
+        }
+    }
+
+    private static final class ProgressOutputStream extends FilterOutputStream {
+        private final Download download;
+
+        private ProgressOutputStream(OutputStream out, Download download) {
+            super(out);
+            this.download = download;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            download.contentDigest.update((byte) b);
+            download.advance(1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            out.write(bytes, offset, length);
+            download.contentDigest.update(bytes, offset, length);
+            download.advance(length);
+        }
+
+        @Override
+        public void close() {
+            // The cache closes the underlying file itself.
+        }
+    }
+}
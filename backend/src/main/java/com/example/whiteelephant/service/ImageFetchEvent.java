@@ -0,0 +1,29 @@
+package com.example.whiteelephant.service;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/** One image download from its origin, until the whole body is in the cache or the fetch failed. */
+@Name("whiteelephant.ImageFetch")
+@Label("Image Fetch")
+@Category("White Elephant")
+@StackTrace(false)
+class ImageFetchEvent extends Event {
+    @Label("Origin")
+    String origin;
+
+    @Label("URL")
+    String url;
+
+    @Label("Status")
+    @Description("HTTP status from the origin, or 0 if none arrived")
+    int status;
+
+    @Label("Rejected")
+    @Description("Refused by the origin's open circuit breaker without a request")
+    boolean rejected;
+}
@@ -0,0 +1,286 @@
+package com.example.whiteelephant.service;
+
+import com.example.whiteelephant.service.ImageCache.Receiver;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Fetches images from their origin into the {@link ImageCache} over one shared, pooled HTTP client. Each origin host
+ * has its own {@link CircuitBreaker}, so an origin that keeps timing out is refused immediately instead of holding a
+ * download slot for the full timeout on every request.
+ */
+@Component
+public class ImageOriginClient implements MeterBinder {
+    private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(5);
+    private static final Duration RESPONSE_TIMEOUT = Duration.ofSeconds(10);
+    private static final Duration TRANSFER_TIMEOUT = Duration.ofSeconds(30);
+
+    private final ImageCache imageCache;
+    private final HttpClient httpClient;
+    private final int failureThreshold;
+    private final Duration openDuration;
+    private final ConcurrentMap<String, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+    /** Goes nowhere until Spring binds the application's registry. */
+    private volatile MeterRegistry meterRegistry = new CompositeMeterRegistry();
+
+    public ImageOriginClient(ImageCache imageCache,
+                             @Value("${media.origin.breaker.failure-threshold:5}") int failureThreshold,
+                             @Value("${media.origin.breaker.open-duration:PT30S}") Duration openDuration) {
+        this.imageCache = imageCache;
+        this.httpClient = buildHttpClient();
+        this.failureThreshold = failureThreshold;
+        this.openDuration = openDuration;
+    }
+
+    public ImageCache.Loader loaderFor(String sourceUrl) {
+        return receiver -> fetch(sourceUrl, receiver);
+    }
+
+    public List<CircuitBreaker.Stats> breakerStats() {
+        return breakers.values().stream()
+                .map(CircuitBreaker::stats)
+                .sorted(Comparator.comparing(CircuitBreaker.Stats::name))
+                .toList();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        meterRegistry = registry;
+        breakers.values().forEach(breaker -> bindBreaker(registry, breaker));
+    }
+
+    private CircuitBreaker newBreaker(String origin) {
+        CircuitBreaker breaker = new CircuitBreaker(origin, failureThreshold, openDuration);
+        bindBreaker(meterRegistry, breaker);
+        return breaker;
+    }
+
+    private static void bindBreaker(MeterRegistry registry, CircuitBreaker breaker) {
+        for (CircuitBreaker.State state : CircuitBreaker.State.values()) {
+            Gauge.builder("media.origin.breaker.state", breaker, b -> b.stats().state() == state ? 1 : 0)
+                    .description("1 for the state each origin's circuit breaker is in")
+                    .tags("origin", breaker.stats().name(), "state", state.name().toLowerCase(Locale.ROOT))
+                    .register(registry);
+        }
+        FunctionCounter.builder("media.origin.breaker.rejected", breaker, b -> b.stats().rejected())
+                .description("Fetches refused without a request while the breaker was open")
+                .tag("origin", breaker.stats().name())
+                .register(registry);
+    }
+
+    private void recordFetch(String origin, int status, long startedNanos) {
+        Timer.builder("media.origin.fetch")
+                .description("Image downloads from origins, until the whole body is in the cache")
+                .tags("origin", origin, "status", status == 0 ? "error" : status / 100 + "xx")
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(System.nanoTime() - startedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private CompletableFuture<Void> fetch(String sourceUrl, Receiver receiver) {
+        HttpRequest request;
+        try {
+            request = HttpRequest.newBuilder(URI.create(sourceUrl))
+                    .timeout(RESPONSE_TIMEOUT)
+                    .header(HttpHeaders.USER_AGENT, "white-elephant-proxy")
+                    .GET()
+                    .build();
+        } catch (IllegalArgumentException ex) {
+            return CompletableFuture.failedFuture(
+                    new ResponseStatusException(HttpStatus.BAD_GATEWAY, "Unable to retrieve gift image", ex));
+        }
+
+        String origin = String.valueOf(request.uri().getAuthority());
+        CircuitBreaker breaker = breakers.computeIfAbsent(origin, this::newBreaker);
+        ImageFetchEvent event = new ImageFetchEvent();
+        event.begin();
+        event.origin = origin;
+        event.url = sourceUrl;
+        if (!breaker.tryAcquire()) {
+            event.rejected = true;
+            event.commit();
+            return CompletableFuture.failedFuture(
+                    new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Image origin is unavailable"));
+        }
+
+        long started = System.nanoTime();
+        return httpClient.sendAsync(request, info -> copyImage(info, receiver))
+                .orTimeout(TRANSFER_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS)
+                .handle((response, failure) -> {
+                    Throwable cause = failure instanceof CompletionException && failure.getCause() != null
+                            ? failure.getCause()
+                            : failure;
+                    // Only the origin's own trouble counts against it; a 404 or a full disk says nothing about it.
+                    int status = response == null ? 0 : response.statusCode();
+                    recordFetch(origin, status, started);
+                    event.status = status;
+                    event.commit();
+                    if (cause instanceof IOException || cause instanceof TimeoutException
+                            || status >= 500 || status == HttpStatus.TOO_MANY_REQUESTS.value()) {
+                        breaker.onFailure();
+                    } else {
+                        breaker.onSuccess();
+                    }
+                    if (cause instanceof ResponseStatusException ex) {
+                        throw ex;
+                    }
+                    if (cause != null) {
+                        throw new ResponseStatusException(HttpStatus.BAD_GATEWAY, "Unable to retrieve gift image", cause);
+                    }
+                    if (response.statusCode() / 100 != 2) {
+                        throw new ResponseStatusException(HttpStatus.BAD_GATEWAY, "Image unavailable");
+                    }
+                    return null;
+                });
+    }
+
+    private HttpResponse.BodySubscriber<Void> copyImage(HttpResponse.ResponseInfo info, Receiver receiver) {
+        if (info.statusCode() / 100 != 2) {
+            return HttpResponse.BodySubscribers.discarding();
+        }
+        HttpHeaders headers = new HttpHeaders();
+        info.headers().map().forEach(headers::addAll);
+        MediaType mediaType = headers.getContentType();
+        try {
+            OutputStream target = receiver.begin(new ImageCache.Fetched(
+                    mediaType != null ? mediaType : MediaType.IMAGE_JPEG,
+                    headers.getContentLength(),
+                    timeToLive(headers)));
+            return new ImageBodySubscriber(target);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private Duration timeToLive(HttpHeaders headers) {
+        String cacheControl = headers.getCacheControl();
+        if (cacheControl != null) {
+            for (String directive : cacheControl.toLowerCase(Locale.ROOT).split(",")) {
+                String trimmed = directive.trim();
+                if (trimmed.equals("no-store") || trimmed.equals("no-cache")) {
+                    return Duration.ZERO;
+                }
+                if (trimmed.startsWith("max-age=")) {
+                    try {
+                        return Duration.ofSeconds(Long.parseLong(trimmed.substring("max-age=".length())));
+                    } catch (NumberFormatException ignored) {
+                        // Fall through to Expires or the default.
+                    }
+                }
+            }
+        }
+        long expires = headers.getExpires();
+        if (expires > 0) {
+            return Duration.ofMillis(Math.max(0, expires - System.currentTimeMillis()));
+        }
+        return imageCache.getDefaultTtl();
+    }
+
+    private HttpClient buildHttpClient() {
+        // One shared client keeps connections alive between images and multiplexes them over HTTP/2 where offered.
+        return HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(CONNECT_TIMEOUT)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+    }
+
+    /** Writes body chunks into the cache file as they arrive, one chunk in flight at a time. */
+    private static final class ImageBodySubscriber implements HttpResponse.BodySubscriber<Void> {
+        private final OutputStream target;
+        private final CompletableFuture<Void> body = new CompletableFuture<>();
+        private Flow.Subscription subscription;
+        private byte[] scratch;
+        private long copied;
+
+        private ImageBodySubscriber(OutputStream target) {
+            this.target = target;
+        }
+
+        @Override
+        public CompletableFuture<Void> getBody() {
+            return body;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(1);
+        }
+
+        @Override
+        public void onNext(List<ByteBuffer> buffers) {
+            try {
+                for (ByteBuffer buffer : buffers) {
+                    copied += buffer.remaining();
+                    write(buffer);
+                }
+            } catch (IOException ex) {
+                subscription.cancel();
+                // Unchecked, so a failing cache disk is not mistaken for a failing origin.
+                body.completeExceptionally(new UncheckedIOException(ex));
+                return;
+            }
+            subscription.request(1);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            body.completeExceptionally(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            if (copied == 0) {
+                body.completeExceptionally(new ResponseStatusException(HttpStatus.BAD_GATEWAY, "Image unavailable"));
+            } else {
+                body.complete(null);
+            }
+        }
+
+        private void write(ByteBuffer buffer) throws IOException {
+            if (buffer.hasArray()) {
+                target.write(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+                return;
+            }
+            if (scratch == null) {
+                scratch = new byte[8192];
+            }
+            while (buffer.hasRemaining()) {
+                int length = Math.min(scratch.length, buffer.remaining());
+                buffer.get(scratch, 0, length);
+                target.write(scratch, 0, length);
+            }
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.whiteelephant.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Caps how many image responses may be streaming from a download at once, and runs them on their own threads. A slow
+ * origin can then use up only these threads, never the ones that serve game state and turns. Requests over the cap are
+ * turned away instead of queueing behind the origin.
+ */
+@Component
+public class ImageStreamBulkhead implements DisposableBean, MeterBinder {
+    public record Stats(int maxConcurrent, int active, long admitted, long rejected) {
+    }
+
+    private final int maxConcurrent;
+    private final Semaphore permits;
+    private final ThreadPoolExecutor executor;
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    public ImageStreamBulkhead(@Value("${media.streams.max-concurrent:64}") int maxConcurrent) {
+        this.maxConcurrent = maxConcurrent;
+        this.permits = new Semaphore(maxConcurrent);
+        AtomicInteger threadCount = new AtomicInteger();
+        // One thread per permit, so an admitted stream never waits in the queue; the queue only absorbs the moment
+        // between one stream releasing its permit and its thread becoming free.
+        this.executor = new ThreadPoolExecutor(
+                maxConcurrent,
+                maxConcurrent,
+                60L,
+                TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(maxConcurrent),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "image-stream-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /** Takes a stream slot if one is free. Every successful call must be paired with {@link #exit()}. */
+    public boolean tryEnter() {
+        if (permits.tryAcquire()) {
+            admitted.increment();
+            return true;
+        }
+        rejected.increment();
+        return false;
+    }
+
+    public void exit() {
+        permits.release();
+    }
+
+    public Executor executor() {
+        return executor;
+    }
+
+    public Stats stats() {
+        return new Stats(maxConcurrent, maxConcurrent - permits.availablePermits(), admitted.sum(), rejected.sum());
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("media.streams.active", this, bulkhead -> bulkhead.stats().active())
+                .description("Image responses streaming a download right now")
+                .register(registry);
+        Gauge.builder("media.streams.max", this, bulkhead -> bulkhead.stats().maxConcurrent())
+                .register(registry);
+        FunctionCounter.builder("media.streams.requests", admitted, LongAdder::sum)
+                .tag("outcome", "admitted")
+                .register(registry);
+        FunctionCounter.builder("media.streams.requests", rejected, LongAdder::sum)
+                .tag("outcome", "rejected")
+                .register(registry);
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,198 @@
+package com.example.whiteelephant.service;
+
+import com.example.whiteelephant.dto.GameStateResponse.GiftView;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pulls a gift's images into the {@link ImageCache} the moment it is unwrapped, before every client asks for them at
+ * once. Optionally warms the whole catalog after a reset. Work runs on a small pool so warming never holds more than a
+ * few origin downloads at a time, and a reset or removal cancels whatever the game still had queued.
+ */
+@Component
+public class ImageWarmer implements GameStateListener, DisposableBean, MeterBinder {
+    private static final Logger log = LoggerFactory.getLogger(ImageWarmer.class);
+    private static final int QUEUE_CAPACITY = 1024;
+
+    public record Stats(long scheduled, long fetched, long alreadyCached, long failed, long canceled, long dropped,
+                        int queued, int active) {
+    }
+
+    private final ImageCache imageCache;
+    private final ImageOriginClient originClient;
+    private final boolean enabled;
+    private final boolean warmOnReset;
+    private final ThreadPoolExecutor executor;
+    private final ConcurrentMap<String, Warmup> games = new ConcurrentHashMap<>();
+    private final LongAdder scheduled = new LongAdder();
+    private final LongAdder fetched = new LongAdder();
+    private final LongAdder alreadyCached = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder canceled = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    public ImageWarmer(ImageCache imageCache,
+                       ImageOriginClient originClient,
+                       @Value("${media.prefetch.enabled:true}") boolean enabled,
+                       @Value("${media.prefetch.parallelism:4}") int parallelism,
+                       @Value("${media.prefetch.warm-on-reset:false}") boolean warmOnReset) {
+        this.imageCache = imageCache;
+        this.originClient = originClient;
+        this.enabled = enabled;
+        this.warmOnReset = warmOnReset;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(
+                parallelism,
+                parallelism,
+                0L,
+                TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(QUEUE_CAPACITY),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "image-warm-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /** Only the gifts this version revealed are looked at, and everything needed to fetch them comes with them. */
+    @Override
+    public void onRevealed(GameSession session, List<GiftView> gifts) {
+        if (!enabled) {
+            return;
+        }
+        Warmup warmup = games.computeIfAbsent(session.getGameId(), id -> new Warmup());
+        for (GiftView gift : gifts) {
+            if (warmup.revealed.add(gift.getId())) {
+                schedule(warmup, gift);
+            }
+        }
+    }
+
+    @Override
+    public void onReset(GameSession session) {
+        Warmup warmup = new Warmup();
+        Warmup previous = games.put(session.getGameId(), warmup);
+        if (previous != null) {
+            previous.cancel();
+        }
+        if (enabled && warmOnReset) {
+            for (GiftView gift : session.getState().getGifts()) {
+                schedule(warmup, gift);
+            }
+        }
+    }
+
+    public void cancel(String gameId) {
+        Warmup warmup = games.remove(gameId);
+        if (warmup != null) {
+            warmup.cancel();
+        }
+    }
+
+    public Stats stats() {
+        return new Stats(scheduled.sum(), fetched.sum(), alreadyCached.sum(), failed.sum(), canceled.sum(),
+                dropped.sum(), executor.getQueue().size(), executor.getActiveCount());
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        warmed(registry, "fetched", fetched);
+        warmed(registry, "cached", alreadyCached);
+        warmed(registry, "failed", failed);
+        warmed(registry, "canceled", canceled);
+        warmed(registry, "dropped", dropped);
+        Gauge.builder("media.prefetch.queued", this, warmer -> warmer.stats().queued())
+                .description("Images waiting to be warmed")
+                .register(registry);
+    }
+
+    private static void warmed(MeterRegistry registry, String outcome, LongAdder count) {
+        FunctionCounter.builder("media.prefetch.images", count, LongAdder::sum)
+                .description("Images the warmer finished with, by outcome")
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    private void schedule(Warmup warmup, GiftView gift) {
+        List<String> imageUrls = gift.getSourceImageUrls();
+        for (int index = 0; index < imageUrls.size(); index++) {
+            ImageCache.ImageKey key = new ImageCache.ImageKey(gift.getId(), index);
+            String sourceUrl = imageUrls.get(index);
+            FutureTask<Void> task = new FutureTask<>(() -> {
+                warm(key, sourceUrl);
+                return null;
+            }) {
+                @Override
+                protected void done() {
+                    warmup.pending.remove(this);
+                }
+            };
+            warmup.pending.add(task);
+            scheduled.increment();
+            try {
+                executor.execute(task);
+            } catch (RejectedExecutionException ex) {
+                warmup.pending.remove(task);
+                dropped.increment();
+            }
+        }
+    }
+
+    private void warm(ImageCache.ImageKey key, String sourceUrl) throws InterruptedException {
+        try {
+            ImageCache.Lookup lookup = imageCache.open(key, originClient.loaderFor(sourceUrl));
+            if (lookup instanceof ImageCache.Download download) {
+                // Waiting here is what bounds warming to one origin download per pool thread.
+                download.whenCached().get();
+                fetched.increment();
+            } else {
+                alreadyCached.increment();
+            }
+        } catch (ExecutionException | RuntimeException ex) {
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
+            failed.increment();
+            log.debug("Could not warm image {} from {}", key, sourceUrl, ex);
+        }
+    }
+
+    private final class Warmup {
+        private final Set<String> revealed = ConcurrentHashMap.newKeySet();
+        private final Set<FutureTask<Void>> pending = ConcurrentHashMap.newKeySet();
+
+        private void cancel() {
+            for (FutureTask<Void> task : pending) {
+                if (task.cancel(true)) {
+                    canceled.increment();
+                }
+            }
+            executor.purge();
+        }
+    }
+}
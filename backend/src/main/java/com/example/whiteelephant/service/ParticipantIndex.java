@@ -0,0 +1,128 @@
+package com.example.whiteelephant.service;
+
+import com.example.whiteelephant.dto.GameStateResponse;
+import com.example.whiteelephant.dto.GameStateResponse.GiftView;
+import com.example.whiteelephant.dto.GameStateResponse.ParticipantView;
+import com.example.whiteelephant.dto.ParticipantStateResponse;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * One published snapshot indexed by participant and by country, so each participant's view is a few lookups and a
+ * share of its country's lists. Built at most once per version, on the first participant poll; the views themselves are
+ * kept until the next version replaces the index.
+ */
+final class ParticipantIndex {
+    private static final int NEXT_UP = 3;
+
+    private final GameStateResponse source;
+    private final Map<String, ParticipantView> participants;
+    private final Map<String, String> broughtGifts;
+    private final Map<String, GiftView> gifts;
+    private final Map<String, Country> countries = new HashMap<>();
+    private final Map<String, Integer> turnPositions;
+    private final Map<String, Integer> swapPositions;
+    private final ParticipantView currentParticipant;
+    private final List<ParticipantView> nextUp;
+    private final int revealedGiftCount;
+    private final ConcurrentMap<String, ParticipantStateResponse> views = new ConcurrentHashMap<>();
+
+    private record Country(List<GiftView> gifts, Map<String, Integer> positions, List<ParticipantView> holders) {
+    }
+
+    ParticipantIndex(GameStateResponse source) {
+        this.source = source;
+        List<ParticipantView> roster = source.getParticipants();
+        participants = new HashMap<>(roster.size() * 2);
+        for (ParticipantView participant : roster) {
+            participants.put(participant.getId(), participant);
+        }
+
+        List<GiftView> lineup = source.getGifts();
+        gifts = new HashMap<>(lineup.size() * 2);
+        broughtGifts = new HashMap<>(lineup.size() * 2);
+        int revealed = 0;
+        for (int position = 0; position < lineup.size(); position++) {
+            GiftView gift = lineup.get(position);
+            gifts.put(gift.getId(), gift);
+            broughtGifts.put(gift.getOriginalOwnerParticipantId(), gift.getId());
+            Country country = countries.computeIfAbsent(gift.getCountry(),
+                    name -> new Country(new ArrayList<>(), new LinkedHashMap<>(), new ArrayList<>()));
+            country.gifts().add(gift);
+            country.positions().put(gift.getId(), position + 1);
+            ParticipantView holder = gift.getWinnerParticipantId() == null
+                    ? null
+                    : participants.get(gift.getWinnerParticipantId());
+            if (holder != null) {
+                country.holders().add(holder);
+            }
+            if (gift.isRevealed()) {
+                revealed++;
+            }
+        }
+        revealedGiftCount = revealed;
+
+        turnPositions = positions(source.getUpcomingTurnOrder());
+        swapPositions = positions(source.getSwapOrder());
+        currentParticipant = source.getCurrentParticipantId() == null
+                ? null
+                : participants.get(source.getCurrentParticipantId());
+        List<ParticipantView> upcoming = new ArrayList<>(NEXT_UP);
+        for (String id : source.getUpcomingTurnOrder()) {
+            if (upcoming.size() == NEXT_UP) {
+                break;
+            }
+            upcoming.add(participants.get(id));
+        }
+        nextUp = List.copyOf(upcoming);
+    }
+
+    GameStateResponse source() {
+        return source;
+    }
+
+    ParticipantStateResponse view(String participantId) {
+        ParticipantView participant = participants.get(participantId);
+        if (participant == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Participant not found");
+        }
+        return views.computeIfAbsent(participantId, id -> build(participant));
+    }
+
+    private ParticipantStateResponse build(ParticipantView participant) {
+        Country country = countries.getOrDefault(participant.getCountry(),
+                new Country(List.of(), Map.of(), List.of()));
+        Integer swapPosition = swapPositions.get(participant.getId());
+        Integer turnPosition = turnPositions.get(participant.getId());
+        String queue = swapPosition != null ? "swap" : turnPosition != null ? "turn" : null;
+        return new ParticipantStateResponse(
+                source,
+                participant,
+                currentParticipant,
+                queue,
+                swapPosition != null ? swapPosition : turnPosition,
+                nextUp,
+                country.gifts(),
+                country.positions(),
+                country.holders(),
+                broughtGifts.get(participant.getId()),
+                participant.getCurrentGiftId() == null ? null : gifts.get(participant.getCurrentGiftId()),
+                revealedGiftCount);
+    }
+
+    private static Map<String, Integer> positions(List<String> order) {
+        Map<String, Integer> positions = new HashMap<>(order.size() * 2);
+        for (int position = 0; position < order.size(); position++) {
+            positions.put(order.get(position), position + 1);
+        }
+        return positions;
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.whiteelephant.service;
+
+import com.example.whiteelephant.model.Gift;
+import com.example.whiteelephant.model.Participant;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+/**
+ * Participants paired with the gift each one brought, as seeded or imported. Ids are name-based UUIDs, so the same row
+ * always gets the same ids and a re-imported roster keeps its avatar and image cache entries.
+ */
+public record Roster(List<Participant> participants, List<Gift> gifts) {
+    /** Below this the id hashing is cheaper than splitting it across the common pool. */
+    private static final int PARALLEL_THRESHOLD = 2048;
+
+    public record Entry(
+            String name,
+            String photoUrl,
+            String country,
+            String giftName,
+            String giftDescription,
+            String giftImageUrl) {
+    }
+
+    public static Roster of(List<Entry> entries) {
+        int size = entries.size();
+        Participant[] participants = new Participant[size];
+        Gift[] gifts = new Gift[size];
+        IntStream rows = IntStream.range(0, size);
+        (size >= PARALLEL_THRESHOLD ? rows.parallel() : rows).forEach(row -> {
+            Entry entry = entries.get(row);
+            String participantId = stableId("participant", entry.name(), entry.photoUrl());
+            participants[row] = new Participant(participantId, entry.name(), entry.photoUrl(), entry.country());
+            gifts[row] = new Gift(
+                    stableId("gift", entry.giftName(), entry.giftImageUrl()),
+                    entry.giftName(),
+                    entry.giftDescription(),
+                    "https://gift-guide.example/" + toSlug(entry.giftName()),
+                    withAltImages(entry.giftImageUrl()),
+                    participantId,
+                    entry.country());
+        });
+        requireDistinctParticipants(participants);
+        distinguishRepeatedGifts(gifts, entries);
+        return new Roster(Arrays.asList(participants), Arrays.asList(gifts));
+    }
+
+    private static void requireDistinctParticipants(Participant[] participants) {
+        Map<String, Integer> rows = new HashMap<>(participants.length * 2);
+        for (int row = 0; row < participants.length; row++) {
+            Integer earlier = rows.putIfAbsent(participants[row].getId(), row);
+            if (earlier != null) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "Row " + (row + 1) + " repeats " + participants[row].getName() + " from row " + (earlier + 1));
+            }
+        }
+    }
+
+    /**
+     * Two people may well bring the same thing. The first keeps the plain id, so the built-in roster's ids never change;
+     * later ones are told apart by who brought them.
+     */
+    private static void distinguishRepeatedGifts(Gift[] gifts, List<Entry> entries) {
+        Set<String> seen = new HashSet<>(gifts.length * 2);
+        for (int row = 0; row < gifts.length; row++) {
+            Gift gift = gifts[row];
+            if (!seen.add(gift.getId())) {
+                Entry entry = entries.get(row);
+                gifts[row] = new Gift(
+                        stableId("gift", entry.giftName(), entry.giftImageUrl(), gift.getOriginalOwnerParticipantId()),
+                        gift.getName(),
+                        gift.getDescription(),
+                        gift.getUrl(),
+                        gift.getImageUrls(),
+                        gift.getOriginalOwnerParticipantId(),
+                        gift.getCountry());
+                seen.add(gifts[row].getId());
+            }
+        }
+    }
+
+    private static List<String> withAltImages(String primaryUrl) {
+        if (primaryUrl.isEmpty()) {
+            return List.of();
+        }
+        return List.of(
+                primaryUrl,
+                primaryUrl + "&variant=1",
+                primaryUrl + "&variant=2"
+        );
+    }
+
+    static String stableId(String namespace, String... components) {
+        String combined = namespace + ":" + String.join("|", components);
+        return UUID.nameUUIDFromBytes(combined.getBytes(StandardCharsets.UTF_8)).toString();
+    }
+
+    static String toSlug(String value) {
+        String slug = value.toLowerCase(Locale.ROOT)
+                .replaceAll("[^a-z0-9]+", "-")
+                .replaceAll("(^-|-$)", "");
+        return slug.isEmpty() ? "gift" : slug;
+    }
+}
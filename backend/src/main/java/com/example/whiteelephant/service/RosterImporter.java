@@ -0,0 +1,220 @@
+package com.example.whiteelephant.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Reads an uploaded roster, one row per participant and the gift they brought, from CSV with a header row or from
+ * newline-delimited JSON. Rows are parsed one at a time straight off the request body, so only the entries themselves
+ * are ever held, never the upload.
+ */
+@Component
+public class RosterImporter {
+    public static final MediaType TEXT_CSV = MediaType.valueOf("text/csv");
+    /** Well under the 64 KB a string may take in a journal snapshot. */
+    private static final int MAX_FIELD_LENGTH = 2048;
+    private static final int MAX_FIELDS = 64;
+    private static final List<String> COLUMNS =
+            List.of("name", "photoUrl", "country", "giftName", "giftDescription", "giftImageUrl");
+
+    private final ObjectReader entryReader;
+    private final int maxRows;
+
+    public RosterImporter(ObjectMapper objectMapper, @Value("${game.roster.max-rows:100000}") int maxRows) {
+        this.entryReader = objectMapper.readerFor(Roster.Entry.class);
+        this.maxRows = maxRows;
+    }
+
+    public Roster read(InputStream body, MediaType contentType) {
+        try {
+            List<Roster.Entry> entries = TEXT_CSV.isCompatibleWith(contentType) ? readCsv(body) : readNdjson(body);
+            if (entries.isEmpty()) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Roster has no rows");
+            }
+            return Roster.of(entries);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private List<Roster.Entry> readNdjson(InputStream body) throws IOException {
+        List<Roster.Entry> entries = new ArrayList<>();
+        try (MappingIterator<Roster.Entry> rows = entryReader.readValues(body)) {
+            while (true) {
+                Roster.Entry entry;
+                try {
+                    if (!rows.hasNextValue()) {
+                        return entries;
+                    }
+                    entry = rows.nextValue();
+                } catch (JsonProcessingException ex) {
+                    throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                            "Row " + (entries.size() + 1) + " is not a JSON object with the roster fields");
+                }
+                add(entries, entry);
+            }
+        }
+    }
+
+    private List<Roster.Entry> readCsv(InputStream body) throws IOException {
+        CsvReader csv = new CsvReader(new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8)));
+        List<String> header = csv.next();
+        if (header == null) {
+            return List.of();
+        }
+        Map<String, Integer> positions = new HashMap<>();
+        for (int position = 0; position < header.size(); position++) {
+            positions.put(header.get(position).strip().toLowerCase(Locale.ROOT), position);
+        }
+        int[] columns = COLUMNS.stream()
+                .mapToInt(column -> positions.getOrDefault(column.toLowerCase(Locale.ROOT), -1))
+                .toArray();
+        if (columns[0] < 0 || columns[2] < 0 || columns[3] < 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Roster header needs name, country and giftName columns");
+        }
+        List<Roster.Entry> entries = new ArrayList<>();
+        for (List<String> record = csv.next(); record != null; record = csv.next()) {
+            if (record.size() == 1 && record.get(0).isBlank()) {
+                continue;
+            }
+            add(entries, new Roster.Entry(
+                    field(record, columns[0]),
+                    field(record, columns[1]),
+                    field(record, columns[2]),
+                    field(record, columns[3]),
+                    field(record, columns[4]),
+                    field(record, columns[5])));
+        }
+        return entries;
+    }
+
+    private static String field(List<String> record, int position) {
+        return position >= 0 && position < record.size() ? record.get(position) : null;
+    }
+
+    private void add(List<Roster.Entry> entries, Roster.Entry entry) {
+        int row = entries.size() + 1;
+        if (row > maxRows) {
+            throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE,
+                    "Roster is limited to " + maxRows + " rows");
+        }
+        entries.add(new Roster.Entry(
+                required(entry.name(), "name", row),
+                optional(entry.photoUrl(), "photoUrl", row),
+                required(entry.country(), "country", row),
+                required(entry.giftName(), "giftName", row),
+                optional(entry.giftDescription(), "giftDescription", row),
+                optional(entry.giftImageUrl(), "giftImageUrl", row)));
+    }
+
+    private static String required(String value, String column, int row) {
+        String checked = optional(value, column, row);
+        if (checked.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Row " + row + " needs a " + column);
+        }
+        return checked;
+    }
+
+    private static String optional(String value, String column, int row) {
+        String checked = value == null ? "" : value.strip();
+        if (checked.length() > MAX_FIELD_LENGTH) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Row " + row + " has too long a " + column);
+        }
+        return checked;
+    }
+
+    /** RFC 4180 records: quoted fields may hold commas, doubled quotes and line breaks. */
+    static final class CsvReader {
+        private final BufferedReader in;
+        private final StringBuilder field = new StringBuilder();
+        private boolean started;
+
+        CsvReader(BufferedReader in) {
+            this.in = in;
+        }
+
+        private void append(char c) {
+            if (field.length() == MAX_FIELD_LENGTH) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Roster has a field over "
+                        + MAX_FIELD_LENGTH + " characters");
+            }
+            field.append(c);
+        }
+
+        /** The next record, or null at the end of the input. */
+        List<String> next() throws IOException {
+            int c = in.read();
+            if (!started) {
+                started = true;
+                if (c == '\uFEFF') {
+                    c = in.read();
+                }
+            }
+            if (c == -1) {
+                return null;
+            }
+            List<String> record = new ArrayList<>();
+            boolean quoted = false;
+            field.setLength(0);
+            while (true) {
+                if (quoted) {
+                    if (c == -1) {
+                        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Roster ends inside a quoted field");
+                    }
+                    if (c == '"') {
+                        int following = in.read();
+                        if (following == '"') {
+                            append('"');
+                        } else {
+                            quoted = false;
+                            c = following;
+                            continue;
+                        }
+                    } else {
+                        append((char) c);
+                    }
+                } else if (c == '"' && field.isEmpty()) {
+                    quoted = true;
+                } else if (c == ',') {
+                    if (record.size() == MAX_FIELDS) {
+                        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Roster row has too many columns");
+                    }
+                    record.add(field.toString());
+                    field.setLength(0);
+                } else if (c == '\r' || c == '\n' || c == -1) {
+                    if (c == '\r') {
+                        in.mark(1);
+                        if (in.read() != '\n') {
+                            in.reset();
+                        }
+                    }
+                    record.add(field.toString());
+                    return record;
+                } else {
+                    append((char) c);
+                }
+                c = in.read();
+            }
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.whiteelephant.service;
+
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.MediaType;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * An event stream over servlet non-blocking IO: writes go to the container's buffer and never hold the calling
+ * thread, and the container calls back once a client that fell behind has taken what was buffered.
+ */
+final class ServletEventSink implements EventSink, WriteListener, AsyncListener {
+    private final AsyncContext context;
+    private final ServletOutputStream out;
+    private volatile Runnable onWritable = () -> { };
+    private volatile Runnable onClosed = () -> { };
+
+    ServletEventSink(HttpServletRequest request, HttpServletResponse response, long timeoutMillis) throws IOException {
+        response.setContentType(MediaType.TEXT_EVENT_STREAM_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setHeader("Cache-Control", "no-cache");
+        this.context = request.startAsync(request, response);
+        this.context.setTimeout(timeoutMillis);
+        this.out = response.getOutputStream();
+    }
+
+    @Override
+    public void open(Runnable onWritable, Runnable onClosed) {
+        this.onWritable = onWritable;
+        this.onClosed = onClosed;
+        context.addListener(this);
+        out.setWriteListener(this);
+    }
+
+    @Override
+    public boolean isReady() {
+        return out.isReady();
+    }
+
+    @Override
+    public void write(byte[] frame) throws IOException {
+        out.write(frame);
+        // A flush that cannot finish now is finished by the container before it next reports the stream ready.
+        if (out.isReady()) {
+            out.flush();
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            context.complete();
+        } catch (IllegalStateException alreadyCompleted) {
+            // The client went away first.
+        }
+    }
+
+    @Override
+    public void onWritePossible() {
+        onWritable.run();
+    }
+
+    @Override
+    public void onError(Throwable error) {
+        onClosed.run();
+    }
+
+    @Override
+    public void onComplete(AsyncEvent event) {
+        onClosed.run();
+    }
+
+    @Override
+    public void onTimeout(AsyncEvent event) {
+        onClosed.run();
+        close();
+    }
+
+    @Override
+    public void onError(AsyncEvent event) {
+        onClosed.run();
+    }
+
+    @Override
+    public void onStartAsync(AsyncEvent event) {
+        // Started once, by the constructor.
+    }
+}
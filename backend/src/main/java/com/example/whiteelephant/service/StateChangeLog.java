@@ -0,0 +1,162 @@
+package com.example.whiteelephant.service;
+
+import com.example.whiteelephant.dto.GameStateDelta;
+import com.example.whiteelephant.dto.GameStateResponse;
+import com.example.whiteelephant.dto.GameStateResponse.GiftView;
+import com.example.whiteelephant.dto.GameStateResponse.ParticipantView;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded ring of the changes made by each published version. Writers record under the session monitor; readers
+ * rebuild deltas without locking and fall back to a full snapshot once the requested version has been overwritten.
+ */
+final class StateChangeLog {
+    private final AtomicReferenceArray<ChangeSet> ring;
+
+    StateChangeLog(int capacity) {
+        this.ring = new AtomicReferenceArray<>(capacity);
+    }
+
+    /** Records the changes {@code next} made and returns the gifts it revealed. */
+    List<GiftView> record(GameStateResponse previous, GameStateResponse next) {
+        ChangeSet changes = diff(previous, next);
+        // A batch publishes several versions at once; each of them carries the batch's combined changes.
+        long first = previous == null
+                ? next.getVersion()
+                : Math.max(previous.getVersion() + 1, next.getVersion() - ring.length() + 1);
+        for (long version = first; version <= next.getVersion(); version++) {
+            ring.set(slot(version), changes.at(version));
+        }
+        return changes.revealedGifts();
+    }
+
+    Optional<GameStateDelta> since(long sinceVersion, GameStateResponse current) {
+        long currentVersion = current.getVersion();
+        if (sinceVersion > currentVersion || currentVersion - sinceVersion > ring.length()) {
+            return Optional.empty();
+        }
+
+        Set<String> giftIds = new HashSet<>();
+        Set<String> participantIds = new HashSet<>();
+        boolean upcomingChanged = false;
+        boolean completedChanged = false;
+        boolean blocksChanged = false;
+        boolean countriesChanged = false;
+        for (long version = sinceVersion + 1; version <= currentVersion; version++) {
+            ChangeSet changes = ring.get(slot(version));
+            if (changes == null || changes.version() != version || changes.structural()) {
+                return Optional.empty();
+            }
+            giftIds.addAll(changes.giftIds());
+            participantIds.addAll(changes.participantIds());
+            upcomingChanged |= changes.upcomingChanged();
+            completedChanged |= changes.completedChanged();
+            blocksChanged |= changes.blocksChanged();
+            countriesChanged |= changes.countriesChanged();
+        }
+
+        List<ParticipantView> participants = current.getParticipants().stream()
+                .filter(participant -> participantIds.contains(participant.getId()))
+                .toList();
+        List<GiftView> gifts = current.getGifts().stream()
+                .filter(gift -> giftIds.contains(gift.getId()))
+                .toList();
+        return Optional.of(new GameStateDelta(
+                sinceVersion,
+                current,
+                participants,
+                gifts,
+                upcomingChanged ? current.getUpcomingTurnOrder() : null,
+                completedChanged ? current.getCompletedTurnOrder() : null,
+                blocksChanged ? current.getImmediateStealBlocks() : null,
+                countriesChanged ? current.getCompletedCountries() : null
+        ));
+    }
+
+    private int slot(long version) {
+        return (int) Math.floorMod(version, (long) ring.length());
+    }
+
+    private static ChangeSet diff(GameStateResponse previous, GameStateResponse next) {
+        if (previous == null
+                || previous.getParticipants().size() != next.getParticipants().size()
+                || previous.getGifts().size() != next.getGifts().size()
+                || !previous.getCountrySequence().equals(next.getCountrySequence())) {
+            return ChangeSet.replaced(next);
+        }
+
+        Set<String> participantIds = new HashSet<>();
+        List<ParticipantView> before = previous.getParticipants();
+        List<ParticipantView> after = next.getParticipants();
+        for (int index = 0; index < after.size(); index++) {
+            ParticipantView was = before.get(index);
+            ParticipantView now = after.get(index);
+            if (!was.getId().equals(now.getId())) {
+                return ChangeSet.replaced(next);
+            }
+            if (!Objects.equals(was.getCurrentGiftId(), now.getCurrentGiftId())) {
+                participantIds.add(now.getId());
+            }
+        }
+
+        Set<String> giftIds = new HashSet<>();
+        List<GiftView> revealedGifts = new ArrayList<>();
+        List<GiftView> giftsBefore = previous.getGifts();
+        List<GiftView> giftsAfter = next.getGifts();
+        for (int index = 0; index < giftsAfter.size(); index++) {
+            GiftView was = giftsBefore.get(index);
+            GiftView now = giftsAfter.get(index);
+            if (!was.getId().equals(now.getId())) {
+                return ChangeSet.replaced(next);
+            }
+            if (was.isRevealed() != now.isRevealed()
+                    || was.getTimesStolen() != now.getTimesStolen()
+                    || !Objects.equals(was.getWinnerParticipantId(), now.getWinnerParticipantId())) {
+                giftIds.add(now.getId());
+            }
+            if (now.isRevealed() && !was.isRevealed()) {
+                revealedGifts.add(now);
+            }
+        }
+
+        return new ChangeSet(
+                next.getVersion(),
+                false,
+                Set.copyOf(giftIds),
+                Set.copyOf(participantIds),
+                List.copyOf(revealedGifts),
+                !previous.getUpcomingTurnOrder().equals(next.getUpcomingTurnOrder()),
+                !previous.getCompletedTurnOrder().equals(next.getCompletedTurnOrder()),
+                !previous.getImmediateStealBlocks().equals(next.getImmediateStealBlocks()),
+                !previous.getCompletedCountries().equals(next.getCompletedCountries())
+        );
+    }
+
+    private record ChangeSet(long version,
+                             boolean structural,
+                             Set<String> giftIds,
+                             Set<String> participantIds,
+                             List<GiftView> revealedGifts,
+                             boolean upcomingChanged,
+                             boolean completedChanged,
+                             boolean blocksChanged,
+                             boolean countriesChanged) {
+        /** Nothing can be compared, so every gift already revealed in {@code next} counts as revealed by it. */
+        static ChangeSet replaced(GameStateResponse next) {
+            List<GiftView> revealed = next.getGifts().stream().filter(GiftView::isRevealed).toList();
+            return new ChangeSet(next.getVersion(), true, Set.of(), Set.of(), revealed, true, true, true, true);
+        }
+
+        ChangeSet at(long otherVersion) {
+            return otherVersion == version ? this : new ChangeSet(otherVersion, structural, giftIds, participantIds,
+                    revealedGifts, upcomingChanged, completedChanged, blocksChanged, countriesChanged);
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package com.example.whiteelephant.service;
+
+import com.example.whiteelephant.dto.GameStateResponse;
+import com.example.whiteelephant.dto.GameStateResponse.GiftView;
+import com.example.whiteelephant.dto.GameStateResponse.ParticipantView;
+import com.example.whiteelephant.dto.StatePage;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * The named properties a client asked for with {@code fields=}. Only those getters are called and only their values are
+ * serialized, so a poll for the current turn costs the same on a 50,000-person game as on a 20-person one. Names are the
+ * state's JSON properties; {@code gifts.name} picks one property of every gift, and a bare {@code gifts} picks them all.
+ */
+public final class StateProjection {
+    public static final int MAX_PAGE_SIZE = 1000;
+
+    private static final Map<String, Function<GameStateResponse, Object>> STATE_FIELDS = new LinkedHashMap<>();
+    private static final Map<String, Function<ParticipantView, Object>> PARTICIPANT_FIELDS = new LinkedHashMap<>();
+    private static final Map<String, Function<GiftView, Object>> GIFT_FIELDS = new LinkedHashMap<>();
+
+    static {
+        STATE_FIELDS.put("participants", GameStateResponse::getParticipants);
+        STATE_FIELDS.put("gifts", GameStateResponse::getGifts);
+        STATE_FIELDS.put("upcomingTurnOrder", GameStateResponse::getUpcomingTurnOrder);
+        STATE_FIELDS.put("completedTurnOrder", GameStateResponse::getCompletedTurnOrder);
+        STATE_FIELDS.put("immediateStealBlocks", GameStateResponse::getImmediateStealBlocks);
+        STATE_FIELDS.put("currentParticipantId", GameStateResponse::getCurrentParticipantId);
+        STATE_FIELDS.put("gameStarted", GameStateResponse::isGameStarted);
+        STATE_FIELDS.put("gameCompleted", GameStateResponse::isGameCompleted);
+        STATE_FIELDS.put("finalSwapAvailable", GameStateResponse::isFinalSwapAvailable);
+        STATE_FIELDS.put("finalSwapUsed", GameStateResponse::isFinalSwapUsed);
+        STATE_FIELDS.put("swapModeActive", GameStateResponse::isSwapModeActive);
+        STATE_FIELDS.put("firstParticipantId", GameStateResponse::getFirstParticipantId);
+        STATE_FIELDS.put("countrySequence", GameStateResponse::getCountrySequence);
+        STATE_FIELDS.put("completedCountries", GameStateResponse::getCompletedCountries);
+        STATE_FIELDS.put("currentCountry", GameStateResponse::getCurrentCountry);
+
+        PARTICIPANT_FIELDS.put("id", ParticipantView::getId);
+        PARTICIPANT_FIELDS.put("name", ParticipantView::getName);
+        PARTICIPANT_FIELDS.put("photoUrl", ParticipantView::getPhotoUrl);
+        PARTICIPANT_FIELDS.put("country", ParticipantView::getCountry);
+        PARTICIPANT_FIELDS.put("currentGiftId", ParticipantView::getCurrentGiftId);
+        PARTICIPANT_FIELDS.put("playOrder", ParticipantView::getPlayOrder);
+
+        GIFT_FIELDS.put("id", GiftView::getId);
+        GIFT_FIELDS.put("name", GiftView::getName);
+        GIFT_FIELDS.put("description", GiftView::getDescription);
+        GIFT_FIELDS.put("url", GiftView::getUrl);
+        GIFT_FIELDS.put("imageUrls", GiftView::getImageUrls);
+        GIFT_FIELDS.put("imageUrl", GiftView::getImageUrl);
+        GIFT_FIELDS.put("revealed", GiftView::isRevealed);
+        GIFT_FIELDS.put("originalOwnerParticipantId", GiftView::getOriginalOwnerParticipantId);
+        GIFT_FIELDS.put("winnerParticipantId", GiftView::getWinnerParticipantId);
+        GIFT_FIELDS.put("country", GiftView::getCountry);
+        GIFT_FIELDS.put("timesStolen", GiftView::getTimesStolen);
+        GIFT_FIELDS.put("locked", GiftView::isLocked);
+    }
+
+    private final List<String> stateFields;
+    private final ItemFields<ParticipantView> participantFields;
+    private final ItemFields<GiftView> giftFields;
+    private final String key;
+
+    private StateProjection(List<String> stateFields,
+                            ItemFields<ParticipantView> participantFields,
+                            ItemFields<GiftView> giftFields) {
+        this.stateFields = stateFields;
+        this.participantFields = participantFields;
+        this.giftFields = giftFields;
+        this.key = stateFields + "|" + participantFields.names() + "|" + giftFields.names();
+    }
+
+    /** Parses a comma-separated {@code fields=} value; unknown names are a 400 listing the valid ones. */
+    public static StateProjection parse(String fields) {
+        List<String> participantNames = new ArrayList<>();
+        List<String> giftNames = new ArrayList<>();
+        boolean allParticipantFields = false;
+        boolean allGiftFields = false;
+        List<String> requested = new ArrayList<>();
+        for (String token : fields.split(",")) {
+            String field = token.strip();
+            if (field.isEmpty()) {
+                continue;
+            }
+            int dot = field.indexOf('.');
+            String top = dot < 0 ? field : field.substring(0, dot);
+            if (!STATE_FIELDS.containsKey(top)) {
+                throw unknownField(field, STATE_FIELDS);
+            }
+            requested.add(top);
+            if (top.equals("participants")) {
+                allParticipantFields |= dot < 0;
+                if (dot >= 0) {
+                    participantNames.add(field.substring(dot + 1));
+                }
+            } else if (top.equals("gifts")) {
+                allGiftFields |= dot < 0;
+                if (dot >= 0) {
+                    giftNames.add(field.substring(dot + 1));
+                }
+            } else if (dot >= 0) {
+                throw unknownField(field, STATE_FIELDS);
+            }
+        }
+        List<String> stateFields = STATE_FIELDS.keySet().stream().filter(requested::contains).toList();
+        return new StateProjection(stateFields,
+                ItemFields.of(allParticipantFields ? null : participantNames, PARTICIPANT_FIELDS),
+                ItemFields.of(allGiftFields ? null : giftNames, GIFT_FIELDS));
+    }
+
+    /** Identifies the projection whatever order or repetition the fields were asked in. */
+    public String key() {
+        return key;
+    }
+
+    /** The selected properties, after the {@code gameId} and {@code version} every response carries. */
+    public Map<String, Object> apply(GameStateResponse snapshot) {
+        Map<String, Object> projected = new LinkedHashMap<>();
+        projected.put("gameId", snapshot.getGameId());
+        projected.put("version", snapshot.getVersion());
+        for (String field : stateFields) {
+            projected.put(field, switch (field) {
+                case "participants" -> participantFields.applyAll(snapshot.getParticipants());
+                case "gifts" -> giftFields.applyAll(snapshot.getGifts());
+                default -> STATE_FIELDS.get(field).apply(snapshot);
+            });
+        }
+        return projected;
+    }
+
+    public static StatePage participantPage(GameStateResponse snapshot, String country, String cursor, int limit,
+                                            String fields) {
+        return page(snapshot, snapshot.getParticipants(),
+                participant -> country == null || country.equals(participant.getCountry()),
+                cursor, limit, ItemFields.parse(fields, PARTICIPANT_FIELDS));
+    }
+
+    public static StatePage giftPage(GameStateResponse snapshot, String country, Boolean revealed, String cursor,
+                                     int limit, String fields) {
+        return page(snapshot, snapshot.getGifts(),
+                gift -> (country == null || country.equals(gift.getCountry()))
+                        && (revealed == null || revealed == gift.isRevealed()),
+                cursor, limit, ItemFields.parse(fields, GIFT_FIELDS));
+    }
+
+    /**
+     * Walks the list from the cursor's position. Positions are stable while the roster and play order are, so pages
+     * read across versions neither skip nor repeat anyone; each page reports the version it was cut from.
+     */
+    private static <T> StatePage page(GameStateResponse snapshot, List<T> items, Predicate<T> filter, String cursor,
+                                      int limit, ItemFields<T> fields) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        int position = cursor == null ? 0 : parseCursor(cursor);
+        List<Object> page = new ArrayList<>(Math.min(limit, items.size()));
+        for (; position < items.size() && page.size() < limit; position++) {
+            T item = items.get(position);
+            if (filter.test(item)) {
+                page.add(fields.apply(item));
+            }
+        }
+        while (position < items.size() && !filter.test(items.get(position))) {
+            position++;
+        }
+        String nextCursor = position < items.size() ? Integer.toString(position) : null;
+        return new StatePage(snapshot.getGameId(), snapshot.getVersion(), page, nextCursor);
+    }
+
+    private static int parseCursor(String cursor) {
+        try {
+            int position = Integer.parseInt(cursor);
+            if (position >= 0) {
+                return position;
+            }
+        } catch (NumberFormatException ignored) {
+            // Reported below like any other bad cursor.
+        }
+        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor");
+    }
+
+    private static ResponseStatusException unknownField(String field, Map<String, ?> known) {
+        return new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                "Unknown field " + field + "; choose from " + String.join(", ", known.keySet()));
+    }
+
+    /** The selected properties of a participant or gift; {@code names} is null when the whole view was asked for. */
+    private record ItemFields<T>(List<String> names, Map<String, Function<T, Object>> getters) {
+        static <T> ItemFields<T> parse(String fields, Map<String, Function<T, Object>> getters) {
+            if (fields == null) {
+                return new ItemFields<>(null, getters);
+            }
+            List<String> names = new ArrayList<>();
+            for (String token : fields.split(",")) {
+                if (!token.isBlank()) {
+                    names.add(token.strip());
+                }
+            }
+            return of(names, getters);
+        }
+
+        static <T> ItemFields<T> of(List<String> names, Map<String, Function<T, Object>> getters) {
+            if (names == null) {
+                return new ItemFields<>(null, getters);
+            }
+            for (String name : names) {
+                if (!getters.containsKey(name)) {
+                    throw unknownField(name, getters);
+                }
+            }
+            return new ItemFields<>(getters.keySet().stream().filter(names::contains).toList(), getters);
+        }
+
+        Object apply(T item) {
+            if (names == null) {
+                return item;
+            }
+            Map<String, Object> projected = new LinkedHashMap<>();
+            for (String name : names) {
+                projected.put(name, getters.get(name).apply(item));
+            }
+            return projected;
+        }
+
+        List<?> applyAll(List<T> items) {
+            if (names == null) {
+                return items;
+            }
+            List<Object> projected = new ArrayList<>(items.size());
+            for (T item : items) {
+                projected.add(apply(item));
+            }
+            return projected;
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.whiteelephant.service;
+
+import com.example.whiteelephant.dto.GameStateDelta;
+import com.example.whiteelephant.dto.GameStateResponse;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Serializes each published state snapshot once and hands out the cached bytes until the next snapshot replaces it.
+ * Projections of a snapshot are cached the same way, a few distinct ones per game. Callers that ask while an encoding
+ * is under way wait for it rather than running their own, and a cache entry is only ever replaced by a newer version.
+ */
+@Component
+public class StateSerializer {
+    /** Clients poll with a handful of field sets; past that, rarer ones are encoded per request instead of kept. */
+    private static final int MAX_CACHED_PROJECTIONS = 16;
+
+    private final ObjectMapper objectMapper;
+    private final ConcurrentMap<String, Encoding> cache = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Projections> projections = new ConcurrentHashMap<>();
+
+    public StateSerializer(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    public SerializedState serialize(GameStateResponse snapshot) {
+        Encoding cached = cache.compute(snapshot.getGameId(), (gameId, current) ->
+                current != null && current.source.getVersion() >= snapshot.getVersion()
+                        ? current
+                        : new Encoding(snapshot, () -> snapshot));
+        if (cached.source != snapshot) {
+            // Only a caller still holding a snapshot older than the cached one gets here; it is encoded for it alone.
+            return encode(snapshot, snapshot);
+        }
+        return cached.get();
+    }
+
+    public SerializedState serialize(GameStateResponse snapshot, StateProjection projection) {
+        Projections cached = projections.compute(snapshot.getGameId(), (gameId, current) ->
+                current != null && current.source().getVersion() >= snapshot.getVersion()
+                        ? current
+                        : new Projections(snapshot, new ConcurrentHashMap<>()));
+        if (cached.source() != snapshot) {
+            return encode(snapshot, projection.apply(snapshot));
+        }
+        Encoding encoding = cached.byKey().get(projection.key());
+        if (encoding == null) {
+            if (cached.byKey().size() >= MAX_CACHED_PROJECTIONS) {
+                return encode(snapshot, projection.apply(snapshot));
+            }
+            encoding = cached.byKey().computeIfAbsent(projection.key(),
+                    key -> new Encoding(snapshot, () -> projection.apply(snapshot)));
+        }
+        return encoding.get();
+    }
+
+    public byte[] serializeDelta(GameStateDelta delta) {
+        try {
+            return objectMapper.writeValueAsBytes(delta);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Unable to serialize game state delta", ex);
+        }
+    }
+
+    public void evict(String gameId) {
+        cache.remove(gameId);
+        projections.remove(gameId);
+    }
+
+    private SerializedState encode(GameStateResponse snapshot, Object body) {
+        byte[] json;
+        try {
+            json = objectMapper.writeValueAsBytes(body);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Unable to serialize game state", ex);
+        }
+        String hash = DigestUtils.md5DigestAsHex(json);
+        return new SerializedState(snapshot, snapshot.getVersion(), json, gzip(json),
+                "\"" + hash + "\"", "\"" + hash + "-gzip\"");
+    }
+
+    private static byte[] gzip(byte[] bytes) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(Math.max(64, bytes.length / 4));
+        try (GZIPOutputStream out = new GZIPOutputStream(buffer)) {
+            out.write(bytes);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return buffer.toByteArray();
+    }
+
+    private record Projections(GameStateResponse source, ConcurrentMap<String, Encoding> byKey) {
+    }
+
+    /** One encoding of one snapshot, run by the first caller to ask for it while the rest wait for its result. */
+    private final class Encoding {
+        private final GameStateResponse source;
+        private final FutureTask<SerializedState> task;
+
+        private Encoding(GameStateResponse source, Supplier<Object> body) {
+            this.source = source;
+            this.task = new FutureTask<>(() -> encode(source, body.get()));
+        }
+
+        private SerializedState get() {
+            task.run();
+            try {
+                return task.get();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while the game state was being serialized", ex);
+            } catch (ExecutionException ex) {
+                if (ex.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                throw new IllegalStateException("Unable to serialize game state", ex.getCause());
+            }
+        }
+    }
+
+    public record SerializedState(GameStateResponse source,
+                                  long version,
+                                  byte[] json,
+                                  byte[] gzip,
+                                  String etag,
+                                  String gzipEtag) {
+    }
+}
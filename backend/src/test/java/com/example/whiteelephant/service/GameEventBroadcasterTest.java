@@ -0,0 +1,154 @@
+package com.example.whiteelephant.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GameEventBroadcasterTest {
+    private static final int SUBSCRIBERS = 5_000;
+    private static final int SLOW_SUBSCRIBERS = 50;
+    // Twice the dispatcher's threads: a broadcaster that parked a thread on each would have none left.
+    private static final int STALLED_SUBSCRIBERS = 8;
+    private static final int PUBLISHES = 200;
+    private static final Duration STALL_TIMEOUT = Duration.ofMillis(200);
+
+    private final GameEventBroadcaster broadcaster =
+            new GameEventBroadcaster(new StateSerializer(new ObjectMapper()), STALL_TIMEOUT);
+    private final GameSession session =
+            new GameSession("load-test", broadcaster, GameJournal.disabled(), GameMetrics.disabled());
+    private final ScheduledExecutorService network = Executors.newSingleThreadScheduledExecutor();
+
+    @AfterEach
+    void shutDown() {
+        broadcaster.destroy();
+        network.shutdownNow();
+    }
+
+    @Test
+    void fansOutToThousandsOfSubscribersWithoutWaitingOnAny() throws Exception {
+        List<RecordingSink> stalled = new ArrayList<>();
+        List<RecordingSink> slow = new ArrayList<>();
+        List<RecordingSink> healthy = new ArrayList<>();
+        for (int index = 0; index < STALLED_SUBSCRIBERS; index++) {
+            stalled.add(subscribe(new RecordingSink(-1)));
+        }
+        for (int index = 0; index < SLOW_SUBSCRIBERS; index++) {
+            slow.add(subscribe(new RecordingSink(20)));
+        }
+        for (int index = STALLED_SUBSCRIBERS + SLOW_SUBSCRIBERS; index < SUBSCRIBERS; index++) {
+            healthy.add(subscribe(new RecordingSink(0)));
+        }
+        long first = session.getState().getVersion();
+
+        // The stalled subscribers never take another byte, so a publisher that waited on any of them would not get
+        // through this.
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            for (int publish = 0; publish < PUBLISHES; publish++) {
+                session.resetGame();
+            }
+        });
+        Thread.sleep(STALL_TIMEOUT.toMillis() * 2);
+        session.resetGame();
+        long newest = session.getState().getVersion();
+
+        awaitTrue(() -> healthy.stream().allMatch(sink -> sink.lastVersion() == newest));
+        for (RecordingSink sink : healthy) {
+            assertEquals(newest - first + 1, sink.versions.size(), "a healthy subscriber gets every version");
+            for (int index = 1; index < sink.versions.size(); index++) {
+                assertEquals(sink.versions.get(index - 1) + 1, sink.versions.get(index));
+            }
+        }
+        awaitTrue(() -> slow.stream().allMatch(sink -> sink.lastVersion() == newest));
+        for (RecordingSink sink : slow) {
+            List<Long> versions = sink.versions;
+            for (int index = 1; index < versions.size(); index++) {
+                assertTrue(versions.get(index) > versions.get(index - 1), "versions must only move forward");
+            }
+            assertTrue(versions.size() < PUBLISHES / 2,
+                    "a slow subscriber should skip to the newest version, got " + versions.size() + " events");
+        }
+
+        awaitTrue(() -> broadcaster.subscriberCount("load-test") == SUBSCRIBERS - STALLED_SUBSCRIBERS);
+        for (RecordingSink sink : stalled) {
+            assertTrue(sink.closed);
+            assertEquals(List.of(first), sink.versions);
+        }
+    }
+
+    private RecordingSink subscribe(RecordingSink sink) {
+        broadcaster.subscribe(session, sink, false);
+        return sink;
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "timed out");
+            Thread.sleep(10);
+        }
+    }
+
+    /**
+     * Keeps the version of every frame instead of sending it. After each write it is not ready again for a while:
+     * never with a negative delay, which stands in for a client that stopped reading.
+     */
+    private final class RecordingSink implements EventSink {
+        private final long busyMillis;
+        private final List<Long> versions = new CopyOnWriteArrayList<>();
+        private volatile Runnable onWritable;
+        private volatile boolean ready = true;
+        private volatile boolean closed;
+
+        private RecordingSink(long busyMillis) {
+            this.busyMillis = busyMillis;
+        }
+
+        @Override
+        public void open(Runnable onWritable, Runnable onClosed) {
+            this.onWritable = onWritable;
+        }
+
+        @Override
+        public boolean isReady() {
+            return ready;
+        }
+
+        @Override
+        public void write(byte[] frame) {
+            String head = new String(frame, 0, Math.min(frame.length, 32), StandardCharsets.UTF_8);
+            versions.add(Long.parseLong(head.substring("id:".length(), head.indexOf('\n'))));
+            if (busyMillis != 0) {
+                ready = false;
+            }
+            if (busyMillis > 0) {
+                network.schedule(() -> {
+                    ready = true;
+                    onWritable.run();
+                }, busyMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+
+        private long lastVersion() {
+            return versions.isEmpty() ? -1 : versions.get(versions.size() - 1);
+        }
+    }
+}
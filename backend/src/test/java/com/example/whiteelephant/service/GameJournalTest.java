@@ -0,0 +1,72 @@
+package com.example.whiteelephant.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GameJournalTest {
+    private static final String GAME_ID = "party";
+
+    @TempDir
+    Path directory;
+
+    private GameJournal journal;
+    private GameRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        journal = new GameJournal(directory, true, 500);
+        registry = new GameRegistry(List.of(), journal, GameMetrics.disabled());
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        journal.destroy();
+    }
+
+    @Test
+    void failedWriteIsRefusedUntilASnapshotRewritesTheGame() throws Exception {
+        GameSession session = registry.getOrCreate(GAME_ID);
+        // A file where the game's directory belongs makes every write for it fail.
+        Path blocker = Files.writeString(directory.resolve(GAME_ID), "not a directory");
+
+        session.shuffleParticipants();
+        assertServiceUnavailable(session);
+        assertTrue(journal.isFailing(GAME_ID));
+
+        session.shuffleParticipants();
+        assertServiceUnavailable(session);
+
+        Files.delete(blocker);
+        session.shuffleParticipants();
+        session.awaitDurable();
+        assertFalse(journal.isFailing(GAME_ID));
+        session.shuffleParticipants();
+        session.awaitDurable();
+        long version = session.getState().getVersion();
+
+        journal.destroy();
+        journal = new GameJournal(directory, true, 500);
+        GameSession recovered = new GameRegistry(List.of(), journal, GameMetrics.disabled()).getOrCreate(GAME_ID);
+        assertEquals(version, recovered.getState().getVersion());
+        assertEquals(session.getState().getParticipants().get(0).getId(),
+                recovered.getState().getParticipants().get(0).getId());
+    }
+
+    private static void assertServiceUnavailable(GameSession session) {
+        ResponseStatusException refused = assertThrows(ResponseStatusException.class, session::awaitDurable);
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, refused.getStatusCode());
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.whiteelephant.service;
+
+import com.example.whiteelephant.dto.GameStateResponse;
+import com.example.whiteelephant.dto.UnwrapRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GameRegistryTest {
+    private static final String GAME_ID = "party";
+
+    @TempDir
+    Path directory;
+
+    private GameJournal journal;
+    private GameRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        journal = new GameJournal(directory, true, 500);
+        registry = new GameRegistry(List.of(), journal, GameMetrics.disabled());
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        journal.destroy();
+    }
+
+    @Test
+    void removedGameRefusesActionsAndLeavesNoJournalBehind() {
+        GameSession removed = registry.getOrCreate(GAME_ID);
+        removed.unwrapGift(unwrapFirstWrappedGift(removed.getState()));
+        removed.awaitDurable();
+        assertTrue(Files.isDirectory(directory.resolve(GAME_ID)));
+
+        registry.remove(GAME_ID);
+
+        assertFalse(Files.exists(directory.resolve(GAME_ID)));
+        ResponseStatusException refused = assertThrows(ResponseStatusException.class,
+                () -> removed.unwrapGift(unwrapFirstWrappedGift(removed.getState())));
+        assertEquals(HttpStatus.NOT_FOUND, refused.getStatusCode());
+        assertThrows(ResponseStatusException.class, removed::resetGame);
+        journal.awaitDurable("unrelated", journal.delete("unrelated"));
+        assertFalse(Files.exists(directory.resolve(GAME_ID)));
+
+        GameSession recreated = registry.getOrCreate(GAME_ID);
+        assertNotSame(removed, recreated);
+        assertTrue(recreated.getState().getGifts().stream().noneMatch(GameStateResponse.GiftView::isRevealed));
+    }
+
+    @Test
+    void removingTwiceIsNotFound() {
+        registry.getOrCreate(GAME_ID);
+        registry.remove(GAME_ID);
+
+        ResponseStatusException missing = assertThrows(ResponseStatusException.class, () -> registry.remove(GAME_ID));
+        assertEquals(HttpStatus.NOT_FOUND, missing.getStatusCode());
+    }
+
+    private static UnwrapRequest unwrapFirstWrappedGift(GameStateResponse state) {
+        String participantId = state.getCurrentParticipantId();
+        String country = state.getParticipants().stream()
+                .filter(participant -> participant.getId().equals(participantId))
+                .findFirst()
+                .orElseThrow()
+                .getCountry();
+        UnwrapRequest request = new UnwrapRequest();
+        request.setParticipantId(participantId);
+        request.setGiftId(state.getGifts().stream()
+                .filter(gift -> !gift.isRevealed() && gift.getCountry().equals(country))
+                .findFirst()
+                .orElseThrow()
+                .getId());
+        return request;
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.whiteelephant.service;
+
+import com.example.whiteelephant.model.GameState;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GameServiceTest {
+    private static final String DEFAULT = GameState.DEFAULT_GAME_ID;
+    private static final String OTHER = "other-party";
+
+    @TempDir
+    Path imageDirectory;
+
+    private GameService gameService;
+
+    @BeforeEach
+    void setUp() {
+        ObjectMapper objectMapper = new ObjectMapper();
+        StateSerializer stateSerializer = new StateSerializer(objectMapper);
+        GameEventBroadcaster broadcaster = new GameEventBroadcaster(stateSerializer, Duration.ofSeconds(10));
+        ImageCache imageCache = new ImageCache(imageDirectory, 1 << 20, Duration.ofMinutes(10), Duration.ZERO);
+        ImageWarmer imageWarmer = new ImageWarmer(imageCache,
+                new ImageOriginClient(imageCache, 5, Duration.ofSeconds(30)), false, 1, false);
+        GameMetrics metrics = GameMetrics.disabled();
+        GameRegistry registry = new GameRegistry(List.of(broadcaster), GameJournal.disabled(), metrics);
+        gameService = new GameService(registry, stateSerializer, broadcaster, imageWarmer, metrics,
+                new RosterImporter(objectMapper, 100));
+    }
+
+    @Test
+    void hostTokenOnlyWorksForItsOwnGame() {
+        String defaultHost = login(DEFAULT);
+        String otherHost = login(OTHER);
+
+        assertTrue(gameService.isAuthorized(DEFAULT, defaultHost));
+        assertTrue(gameService.isAuthorized(OTHER, otherHost));
+        assertFalse(gameService.isAuthorized(OTHER, defaultHost));
+        assertUnauthorized(() -> gameService.shuffleParticipants(OTHER, defaultHost));
+        assertUnauthorized(() -> gameService.resetGame(DEFAULT, otherHost));
+        assertUnauthorized(() -> gameService.removeGame(OTHER, defaultHost));
+        gameService.shuffleParticipants(OTHER, otherHost);
+    }
+
+    @Test
+    void signingInOrResettingOneGameLeavesOtherHostsSignedIn() {
+        String defaultHost = login(DEFAULT);
+        String otherHost = login(OTHER);
+
+        String otherHostAgain = login(OTHER);
+        assertFalse(gameService.isAuthorized(OTHER, otherHost));
+        assertTrue(gameService.isAuthorized(OTHER, otherHostAgain));
+        assertTrue(gameService.isAuthorized(DEFAULT, defaultHost));
+
+        gameService.resetGame(OTHER, otherHostAgain);
+        assertFalse(gameService.isAuthorized(OTHER, otherHostAgain));
+        assertTrue(gameService.isAuthorized(DEFAULT, defaultHost));
+    }
+
+    private String login(String gameId) {
+        return gameService.login(gameId, "host", "holidaypass").getToken();
+    }
+
+    private static void assertUnauthorized(Runnable action) {
+        ResponseStatusException refused = assertThrows(ResponseStatusException.class, action::run);
+        assertEquals(HttpStatus.UNAUTHORIZED, refused.getStatusCode());
+    }
+}
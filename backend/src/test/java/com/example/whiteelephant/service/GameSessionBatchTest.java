@@ -0,0 +1,81 @@
+package com.example.whiteelephant.service;
+
+import com.example.whiteelephant.dto.BatchActionRequest;
+import com.example.whiteelephant.dto.GameStateResponse;
+import com.example.whiteelephant.dto.UnwrapRequest;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GameSessionBatchTest {
+    private final AtomicInteger published = new AtomicInteger();
+    private final GameSession session = new GameSession("batch-test", new GameStateListener() {
+        @Override
+        public void onPublished(GameSession session, GameStateResponse snapshot) {
+            published.incrementAndGet();
+        }
+    }, GameJournal.disabled(), GameMetrics.disabled());
+
+    @Test
+    void refusedActionUndoesTheWholeBatch() {
+        GameStateResponse before = session.getState();
+        BatchActionRequest first = unwrapFirstWrappedGift(before);
+
+        ResponseStatusException refused = assertThrows(ResponseStatusException.class,
+                () -> session.applyBatch(List.of(first, first)));
+
+        assertEquals(HttpStatus.CONFLICT, refused.getStatusCode());
+        assertTrue(refused.getReason().startsWith("Batch action 2 (UNWRAP)"), refused.getReason());
+        assertUntouched(before, first);
+    }
+
+    @Test
+    void unexpectedFailureUndoesTheWholeBatch() {
+        GameStateResponse before = session.getState();
+        BatchActionRequest first = unwrapFirstWrappedGift(before);
+        BatchActionRequest untyped = new BatchActionRequest();
+
+        assertThrows(NullPointerException.class, () -> session.applyBatch(List.of(first, untyped)));
+
+        assertUntouched(before, first);
+    }
+
+    /** Nothing was published, and the first action still applies exactly as it would have before the batch. */
+    private void assertUntouched(GameStateResponse before, BatchActionRequest first) {
+        int publishedBefore = published.get();
+        assertEquals(before, session.getState());
+
+        UnwrapRequest again = new UnwrapRequest();
+        again.setParticipantId(first.getParticipantId());
+        again.setGiftId(first.getGiftId());
+        GameStateResponse after = session.unwrapGift(again);
+
+        assertEquals(before.getVersion() + 1, after.getVersion());
+        assertEquals(publishedBefore + 1, published.get());
+    }
+
+    private static BatchActionRequest unwrapFirstWrappedGift(GameStateResponse state) {
+        String participantId = state.getCurrentParticipantId();
+        String country = state.getParticipants().stream()
+                .filter(participant -> participant.getId().equals(participantId))
+                .findFirst()
+                .orElseThrow()
+                .getCountry();
+        BatchActionRequest action = new BatchActionRequest();
+        action.setType(BatchActionRequest.Type.UNWRAP);
+        action.setParticipantId(participantId);
+        action.setGiftId(state.getGifts().stream()
+                .filter(gift -> gift.getCountry().equals(country) && !gift.isRevealed())
+                .findFirst()
+                .orElseThrow()
+                .getId());
+        return action;
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.whiteelephant.service;
+
+import com.example.whiteelephant.dto.GameStateResponse;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class StateSerializerTest {
+    private static final int CALLERS = 16;
+
+    private final AtomicInteger encodings = new AtomicInteger();
+    private final StateSerializer serializer = new StateSerializer(new ObjectMapper() {
+        @Override
+        public byte[] writeValueAsBytes(Object value) throws JsonProcessingException {
+            encodings.incrementAndGet();
+            try {
+                // Long enough that every caller arrives while the first encoding is still running.
+                Thread.sleep(50);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            return super.writeValueAsBytes(value);
+        }
+    });
+    private final GameSession session = new GameSession("serializer-test", new GameStateListener() {
+    }, GameJournal.disabled(), GameMetrics.disabled());
+
+    @Test
+    void concurrentCallersShareOneEncodingPerVersion() throws Exception {
+        GameStateResponse snapshot = session.getState();
+
+        List<StateSerializer.SerializedState> results = callConcurrently(serializer::serialize, snapshot);
+
+        assertEquals(1, encodings.get());
+        results.forEach(result -> assertSame(results.get(0), result));
+    }
+
+    @Test
+    void concurrentCallersShareOneEncodingPerProjection() throws Exception {
+        GameStateResponse snapshot = session.getState();
+        StateProjection projection = StateProjection.parse("currentParticipantId,gifts.id");
+
+        List<StateSerializer.SerializedState> results =
+                callConcurrently(state -> serializer.serialize(state, projection), snapshot);
+
+        assertEquals(1, encodings.get());
+        results.forEach(result -> assertSame(results.get(0), result));
+    }
+
+    @Test
+    void anOlderSnapshotNeverReplacesTheCachedOne() {
+        GameStateResponse older = session.getState();
+        GameStateResponse newer = session.resetGame();
+        StateProjection projection = StateProjection.parse("currentParticipantId");
+
+        StateSerializer.SerializedState cached = serializer.serialize(newer);
+        StateSerializer.SerializedState cachedProjection = serializer.serialize(newer, projection);
+        assertEquals(older.getVersion(), serializer.serialize(older).version());
+        assertEquals(older.getVersion(), serializer.serialize(older, projection).version());
+
+        int before = encodings.get();
+        assertSame(cached, serializer.serialize(newer));
+        assertSame(cachedProjection, serializer.serialize(newer, projection));
+        assertEquals(before, encodings.get());
+    }
+
+    private static List<StateSerializer.SerializedState> callConcurrently(
+            Function<GameStateResponse, StateSerializer.SerializedState> call, GameStateResponse snapshot)
+            throws Exception {
+        ExecutorService callers = Executors.newFixedThreadPool(CALLERS);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<StateSerializer.SerializedState>> futures = new ArrayList<>();
+            for (int caller = 0; caller < CALLERS; caller++) {
+                futures.add(callers.submit(() -> {
+                    start.await();
+                    return call.apply(snapshot);
+                }));
+            }
+            start.countDown();
+            List<StateSerializer.SerializedState> results = new ArrayList<>();
+            for (Future<StateSerializer.SerializedState> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+}
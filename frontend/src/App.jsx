@@ -9,6 +9,7 @@ import {
   endGame,
   passTurn,
   finishCountrySwap,
+  subscribeToState,
 } from './api/client.js';
 import { LoginForm } from './components/LoginForm.jsx';
 import { ParticipantList } from './components/ParticipantList.jsx';
@@ -107,9 +108,11 @@ export default function App() {
 
   useEffect(() => {
     refreshState();
-    const interval = setInterval(refreshState, 5000);
-    return () => clearInterval(interval);
-  }, [refreshState]);
+    return subscribeToState((state) => {
+      applyState(state);
+      setInitialLoading(false);
+    });
+  }, [refreshState, applyState]);
 
   useEffect(() => {
     return () => {
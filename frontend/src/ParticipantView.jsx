@@ -1,11 +1,9 @@
 import { useCallback, useEffect, useMemo, useState } from 'react';
-import { fetchState } from './api/client.js';
+import { fetchParticipantView, fetchState, subscribeToState, subscribeToVersions } from './api/client.js';
 import { ParticipantList } from './components/ParticipantList.jsx';
 import { GiftGrid } from './components/GiftGrid.jsx';
 import { GiftPreviewDialog } from './components/GiftPreviewDialog.jsx';
 
-const POLL_INTERVAL_MS = 5000;
-
 const createDefaultState = () => ({
   participants: [],
   gifts: [],
@@ -21,6 +19,24 @@ const createDefaultState = () => ({
   immediateStealBlocks: {},
 });
 
+// Shapes a participant view like the full state, so the page renders either; it only knows the people it names.
+const stateFromParticipantView = (view) => {
+  const people = new Map();
+  [view.participant, view.currentParticipant, ...view.nextUp, ...view.giftHolders]
+    .filter(Boolean)
+    .forEach((participant) => people.set(participant.id, participant));
+  return {
+    ...createDefaultState(),
+    participants: Array.from(people.values()),
+    gifts: view.gifts,
+    upcomingTurnOrder: view.nextUp.map((participant) => participant.id),
+    currentParticipantId: view.currentParticipant?.id ?? null,
+    gameStarted: view.gameStarted,
+    gameCompleted: view.gameCompleted,
+    swapModeActive: view.swapModeActive,
+  };
+};
+
 const formatNextUp = (names) => {
   if (names.length === 0) {
     return '';
@@ -43,6 +59,7 @@ export default function ParticipantViewApp() {
     return params.get('participant') || '';
   }, []);
   const [gameState, setGameState] = useState(createDefaultState);
+  const [participantView, setParticipantView] = useState(null);
   const [loading, setLoading] = useState(true);
   const [error, setError] = useState(null);
   const [previewGiftId, setPreviewGiftId] = useState(null);
@@ -89,6 +106,58 @@ export default function ParticipantViewApp() {
   useEffect(() => {
     let cancelled = false;
 
+    if (participantCode) {
+      // A participant only needs their own slice, which stays small however large the party. The stream only says when
+      // it changed; a version that arrives while a fetch is out is picked up by one more fetch once it returns.
+      let latestVersion = -1;
+      let loadedVersion = -1;
+      let fetching = false;
+      const loadView = async () => {
+        if (fetching) {
+          return;
+        }
+        fetching = true;
+        const requestedVersion = latestVersion;
+        try {
+          const view = await fetchParticipantView(participantCode.toLowerCase());
+          loadedVersion = Math.max(requestedVersion, view.version);
+          if (!cancelled) {
+            setParticipantView(view);
+            setGameState(stateFromParticipantView(view));
+            setError(null);
+            setLoading(false);
+          }
+        } catch (err) {
+          loadedVersion = requestedVersion;
+          if (!cancelled) {
+            setParticipantView(null);
+            setGameState(createDefaultState());
+            setError(err.status === 404 ? null : err.message || 'Unable to load game state.');
+            setLoading(false);
+          }
+        } finally {
+          fetching = false;
+        }
+        if (!cancelled && latestVersion > loadedVersion) {
+          loadView();
+        }
+      };
+
+      setLoading(true);
+      const unsubscribe = subscribeToVersions((version) => {
+        latestVersion = version;
+        if (version > loadedVersion) {
+          loadView();
+        }
+      });
+      loadView();
+      return () => {
+        cancelled = true;
+        unsubscribe();
+      };
+    }
+
+    setParticipantView(null);
     const loadState = async () => {
       try {
         const next = await fetchState();
@@ -106,22 +175,31 @@ export default function ParticipantViewApp() {
     };
 
     loadState();
-    const interval = setInterval(loadState, POLL_INTERVAL_MS);
+    const unsubscribe = subscribeToState((next) => {
+      if (!cancelled) {
+        setGameState(next);
+        setError(null);
+        setLoading(false);
+      }
+    });
     return () => {
       cancelled = true;
-      clearInterval(interval);
+      unsubscribe();
     };
-  }, []);
+  }, [participantCode]);
 
   const participants = gameState?.participants ?? [];
   const gifts = gameState?.gifts ?? [];
   const giftPositions = useMemo(() => {
+    if (participantView) {
+      return new Map(Object.entries(participantView.giftPositions));
+    }
     const map = new Map();
     (gameState?.gifts ?? []).forEach((gift, index) => {
       map.set(gift.id, index + 1);
     });
     return map;
-  }, [gameState?.gifts]);
+  }, [gameState?.gifts, participantView]);
   const matchedParticipant = useMemo(() => {
     if (!participantCode) {
       return null;
@@ -269,9 +347,23 @@ export default function ParticipantViewApp() {
     setPreviewGiftId(gift.id);
   };
 
-  const totalTurnsTaken = gameState?.completedTurnOrder?.length || 0;
-  const totalGifts = sortedGifts.length;
+  // A participant view lists only its country's gifts, so the game-wide counts come with it.
+  const totalTurnsTaken = participantView?.turnsPlayed ?? (gameState?.completedTurnOrder?.length || 0);
+  const totalGifts = participantView?.giftCount ?? sortedGifts.length;
+  const totalRevealedGifts = participantView?.revealedGiftCount ?? revealedGiftCount;
   const spectatorMode = gameState?.swapModeActive ? 'swap' : 'turn';
+  const queueSummary = useMemo(() => {
+    if (!participantView?.queuePosition) {
+      return null;
+    }
+    if (participantView.queuePosition === 1) {
+      return participantView.queue === 'swap' ? 'It is your turn to swap.' : 'It is your turn to pick.';
+    }
+    const ahead = participantView.queuePosition - 1;
+    return `${ahead} ${ahead === 1 ? 'person goes' : 'people go'} before you in the ${
+      participantView.queue === 'swap' ? 'swap round' : 'turn order'
+    }.`;
+  }, [participantView]);
 
   return (
     <div className="app participant-app">
@@ -288,7 +380,7 @@ export default function ParticipantViewApp() {
           <div className="spectator-status-item">
             <span className="label">Opened gifts</span>
             <span className="value">
-              {revealedGiftCount}/{totalGifts}
+              {totalRevealedGifts}/{totalGifts}
             </span>
           </div>
           <div className="spectator-status-item">
@@ -344,6 +436,7 @@ export default function ParticipantViewApp() {
                       : 'It has been revealed and is waiting to be claimed.'
                     : 'It is still wrapped—skip it when it is your turn to pick.'}
                 </p>
+                {queueSummary && <p className="muted">{queueSummary}</p>}
                 {!participantGiftVisible && (
                   <p className="muted">
                     Tip: select &ldquo;All gifts&rdquo; in the filters to see it highlighted on the grid.
@@ -371,7 +464,17 @@ export default function ParticipantViewApp() {
 
       <main className="layout spectator-layout">
         <div className="left-column">
-          {participants.length === 0 && !loading ? (
+          {participantView ? (
+            <div className="panel empty-panel">
+              <h2>Your spot</h2>
+              <p className="muted">
+                {queueSummary ||
+                  (participantView.gameCompleted
+                    ? 'The game has wrapped up.'
+                    : 'You are not waiting for a turn right now.')}
+              </p>
+            </div>
+          ) : participants.length === 0 && !loading ? (
             <div className="panel empty-panel">
               <h2>Waiting for participants</h2>
               <p className="muted">Players will appear here once the host adds them to the game.</p>
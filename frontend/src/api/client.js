@@ -25,7 +25,9 @@ async function apiFetch(path, { method = 'GET', headers = {}, body, token } = {}
       const text = await response.text();
       message = text || message;
     }
-    throw new Error(message);
+    const error = new Error(message);
+    error.status = response.status;
+    throw error;
   }
 
   if (response.status === 204) {
@@ -39,6 +41,14 @@ async function apiFetch(path, { method = 'GET', headers = {}, body, token } = {}
   return response.text();
 }
 
+// Asks the image proxy for a downscaled copy; the server rounds the width up to one of a few cached sizes.
+export function imageVariant(url, width) {
+  if (!url || !url.startsWith(API_BASE)) {
+    return url;
+  }
+  return `${url}${url.includes('?') ? '&' : '?'}w=${width}`;
+}
+
 export function login(credentials) {
   return apiFetch('/host/login', { method: 'POST', body: credentials });
 }
@@ -47,6 +57,113 @@ export function fetchState() {
   return apiFetch('/game/state');
 }
 
+// One participant's slice of the game: their country's gifts, their queue spot and whose turn it is.
+export function fetchParticipantView(participantId) {
+  return apiFetch(`/game/participants/${encodeURIComponent(participantId)}/view`);
+}
+
+// Tile offsets for every participant inside one packed avatar image.
+export function fetchAvatarAtlas() {
+  return apiFetch('/avatars/atlas');
+}
+
+function mergeById(items, changes) {
+  if (!changes || changes.length === 0) {
+    return items;
+  }
+  const updates = new Map(changes.map((item) => [item.id, item]));
+  return items.map((item) => updates.get(item.id) ?? item);
+}
+
+export function applyStateDelta(state, delta) {
+  return {
+    ...state,
+    version: delta.version,
+    participants: mergeById(state.participants, delta.participants),
+    gifts: mergeById(state.gifts, delta.gifts),
+    upcomingTurnOrder: delta.upcomingTurnOrder ?? state.upcomingTurnOrder,
+    completedTurnOrder: delta.completedTurnOrder ?? state.completedTurnOrder,
+    immediateStealBlocks: delta.immediateStealBlocks ?? state.immediateStealBlocks,
+    completedCountries: delta.completedCountries ?? state.completedCountries,
+    currentParticipantId: delta.currentParticipantId,
+    gameStarted: delta.gameStarted,
+    gameCompleted: delta.gameCompleted,
+    finalSwapAvailable: delta.finalSwapAvailable,
+    finalSwapUsed: delta.finalSwapUsed,
+    swapModeActive: delta.swapModeActive,
+    currentCountry: delta.currentCountry,
+  };
+}
+
+export function subscribeToState(onState, onError) {
+  const source = new EventSource(`${API_BASE}/game/events`, { withCredentials: true });
+  let current = null;
+  let resyncing = false;
+
+  // A delta that does not follow the state we hold means events were missed; fetch the whole state to catch up.
+  const resync = () => {
+    if (resyncing) {
+      return;
+    }
+    resyncing = true;
+    fetchState()
+      .then((state) => {
+        if (!current || state.version > current.version) {
+          current = state;
+          onState(current);
+        }
+      })
+      .catch(() => {
+        if (onError) {
+          onError();
+        }
+      })
+      .finally(() => {
+        resyncing = false;
+      });
+  };
+
+  source.addEventListener('state', (event) => {
+    current = JSON.parse(event.data);
+    onState(current);
+  });
+  source.addEventListener('delta', (event) => {
+    const delta = JSON.parse(event.data);
+    if (current && delta.version <= current.version) {
+      return;
+    }
+    if (!current || current.version !== delta.sinceVersion) {
+      resync();
+      return;
+    }
+    current = applyStateDelta(current, delta);
+    onState(current);
+  });
+  source.onerror = () => {
+    current = null;
+    if (onError) {
+      onError();
+    }
+  };
+
+  return () => source.close();
+}
+
+// Reports each new version without its state, for pages that fetch a smaller view themselves.
+export function subscribeToVersions(onVersion, onError) {
+  const source = new EventSource(`${API_BASE}/game/events?versions=true`, { withCredentials: true });
+  source.addEventListener('version', (event) => {
+    onVersion(Number(event.data));
+  });
+  source.onerror = () => {
+    if (onError) {
+      onError();
+    }
+  };
+
+  return () => source.close();
+}
+
 export function shuffleParticipants(token) {
   return apiFetch('/game/shuffle', { method: 'POST', token });
 }
@@ -1,3 +1,5 @@
+import { imageVariant } from '../api/client.js';
+
 const GIFT_ICON = String.fromCodePoint(0x1f381);
 const LOCK_ICON = String.fromCodePoint(0x1f512);
 
@@ -42,7 +44,11 @@ export function GiftCard({
       <div className="gift-card-content">
         <div className="gift-image">
           {gift.revealed ? (
-            <img src={primaryImage} alt={gift.name} />
+            <img
+              src={imageVariant(primaryImage, 160)}
+              srcSet={`${imageVariant(primaryImage, 160)} 1x, ${imageVariant(primaryImage, 320)} 2x`}
+              alt={gift.name}
+            />
           ) : (
             <div className="wrapped">
               <span role="img" aria-label="wrapped gift">{GIFT_ICON}</span>
@@ -1,4 +1,5 @@
 import { useEffect, useMemo, useState } from 'react';
+import { imageVariant } from '../api/client.js';
 
 export function GiftPreviewDialog({ gift, owner, onClose }) {
   if (!gift) {
@@ -118,7 +119,7 @@ export function GiftPreviewDialog({ gift, owner, onClose }) {
                       aria-selected={isActive}
                       role="tab"
                     >
-                      <img src={url} alt={`${gift.name} alternate view ${index + 1}`} />
+                      <img src={imageVariant(url, 160)} alt={`${gift.name} alternate view ${index + 1}`} />
                     </button>
                   );
                 })}
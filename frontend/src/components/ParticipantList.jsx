@@ -1,10 +1,62 @@
-﻿export function ParticipantList({
+﻿import { useEffect, useState } from 'react';
+import { fetchAvatarAtlas } from '../api/client.js';
+
+// The 52px avatar circle less its 3px border on each side.
+const AVATAR_SIZE = 46;
+
+function useAvatarAtlas(participants) {
+  const [atlas, setAtlas] = useState(null);
+  const rosterKey = participants.map((participant) => participant.id).join(',');
+
+  useEffect(() => {
+    let cancelled = false;
+    fetchAvatarAtlas()
+      .then((data) => {
+        if (!cancelled) {
+          setAtlas(data);
+        }
+      })
+      .catch(() => {
+        if (!cancelled) {
+          setAtlas(null);
+        }
+      });
+    return () => {
+      cancelled = true;
+    };
+  }, [rosterKey]);
+
+  return atlas;
+}
+
+function Avatar({ participant, atlas }) {
+  const tile = atlas?.tiles?.[participant.id];
+  if (!tile) {
+    return <img src={participant.photoUrl} alt={participant.name} />;
+  }
+  const scale = AVATAR_SIZE / atlas.tileSize;
+  return (
+    <div
+      className="participant-avatar-sprite"
+      role="img"
+      aria-label={participant.name}
+      style={{
+        backgroundImage: `url(${atlas.imageUrl})`,
+        backgroundSize: `${atlas.width * scale}px ${atlas.height * scale}px`,
+        backgroundPosition: `-${tile.x * scale}px -${tile.y * scale}px`,
+      }}
+    />
+  );
+}
+
+export function ParticipantList({
   participants,
   gifts,
   currentParticipantId,
   firstParticipantId,
   swapModeActive,
 }) {
+  const atlas = useAvatarAtlas(participants);
   const giftById = new Map(gifts.map((gift) => [gift.id, gift]));
   const orderedParticipants = [...participants].sort((a, b) => {
     if (a.id === currentParticipantId) return -1;
@@ -30,7 +82,7 @@
               key={participant.id}
               className={`participant-card${isCurrent ? ' active' : ''}`}
             >
-              <img src={participant.photoUrl} alt={participant.name} />
+              <Avatar participant={participant} atlas={atlas} />
               <div>
                 <div className="participant-name">
                   <span className="participant-order-badge">#{participant.playOrder}</span>